@@ -0,0 +1,78 @@
+package com.ptsmods.asmremapper.benchmark;
+
+import com.ptsmods.asmremapper.corpus.CorpusGenerator;
+import com.ptsmods.asmremapper.mappings.FieldMapping;
+import com.ptsmods.asmremapper.mappings.Mappings;
+import com.ptsmods.asmremapper.mappings.MethodMapping;
+import com.ptsmods.asmremapper.mappings.TinyV2Reader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks method and field lookups, the hottest path while remapping.
+ * Every invocation looks up a fixed set of random members, a quarter of which do not exist.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupBenchmark {
+	private static final int lookups = 1024;
+	private final String[] owners = new String[lookups];
+	private final String[] methodNames = new String[lookups];
+	private final String[] fieldOwners = new String[lookups];
+	private final String[] fieldNames = new String[lookups];
+	private final String[] descriptors = new String[lookups];
+	private Mappings yarn;
+
+	@Setup
+	public void setup() throws IOException {
+		CorpusGenerator generator = CorpusGenerator.realistic(42);
+		Path dir = Files.createTempDirectory("asmremapper-bench");
+		Path jar = generator.writeYarn(dir);
+		yarn = TinyV2Reader.read(jar);
+		Files.delete(jar);
+		Files.delete(dir);
+
+		Random random = new Random(42);
+		List<CorpusGenerator.Member> methods = generator.getMethods();
+		List<CorpusGenerator.Member> fields = generator.getFields();
+		for (int i = 0; i < lookups; i++) {
+			CorpusGenerator.Member method = methods.get(random.nextInt(methods.size()));
+			owners[i] = generator.getNamed(method.owner());
+			methodNames[i] = i % 4 == 0 ? "missing" : method.named();
+			descriptors[i] = method.descriptor();
+
+			CorpusGenerator.Member field = fields.get(random.nextInt(fields.size()));
+			fieldOwners[i] = generator.getNamed(field.owner());
+			fieldNames[i] = i % 4 == 0 ? "missing" : field.named();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(lookups)
+	public void getMethodMapping(Blackhole blackhole) {
+		for (int i = 0; i < lookups; i++) {
+			MethodMapping mapping = yarn.getMethodMapping(owners[i], methodNames[i], descriptors[i]);
+			blackhole.consume(mapping);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(lookups)
+	public void getFieldMapping(Blackhole blackhole) {
+		for (int i = 0; i < lookups; i++) {
+			FieldMapping mapping = yarn.getFieldMapping(fieldOwners[i], fieldNames[i]);
+			blackhole.consume(mapping);
+		}
+	}
+}
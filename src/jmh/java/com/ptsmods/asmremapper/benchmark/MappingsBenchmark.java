@@ -0,0 +1,99 @@
+package com.ptsmods.asmremapper.benchmark;
+
+import com.ptsmods.asmremapper.corpus.CorpusGenerator;
+import com.ptsmods.asmremapper.mappings.Mappings;
+import com.ptsmods.asmremapper.mappings.MappingsCache;
+import com.ptsmods.asmremapper.mappings.ProGuardReader;
+import com.ptsmods.asmremapper.mappings.TinyV2Reader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks loading mappings about the size of an actual Minecraft release, both by parsing them and from the binary cache.
+ * The cold cache benchmarks include writing the cache, like the first run with a new version of the mappings does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingsBenchmark {
+	private Path dir;
+	private Path yarnJar;
+	private Path mojFile;
+	private Path yarnCache;
+	private Path mojCache;
+	private long yarnChecksum;
+	private long mojChecksum;
+
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("asmremapper-bench");
+		CorpusGenerator generator = CorpusGenerator.realistic(42);
+		yarnJar = generator.writeYarn(dir);
+		mojFile = generator.writeMoj(dir);
+		yarnCache = dir.resolve("yarn.bin");
+		mojCache = dir.resolve("moj.bin");
+		yarnChecksum = MappingsCache.checksum(yarnJar);
+		mojChecksum = MappingsCache.checksum(mojFile);
+
+		MappingsCache.write(TinyV2Reader.read(yarnJar), yarnChecksum, yarnCache);
+		MappingsCache.write(ProGuardReader.read(mojFile), mojChecksum, mojCache);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(file);
+		}
+	}
+
+	@Benchmark
+	public Mappings parseYarn() throws IOException {
+		return TinyV2Reader.read(yarnJar);
+	}
+
+	@Benchmark
+	public Mappings parseMoj() throws IOException {
+		return ProGuardReader.read(mojFile);
+	}
+
+	@Benchmark
+	public Mappings coldCacheYarn() throws IOException {
+		Mappings yarn = TinyV2Reader.read(yarnJar);
+		MappingsCache.write(yarn, yarnChecksum, dir.resolve("cold-yarn.bin"));
+		return yarn;
+	}
+
+	@Benchmark
+	public Mappings coldCacheMoj() throws IOException {
+		Mappings moj = ProGuardReader.read(mojFile);
+		MappingsCache.write(moj, mojChecksum, dir.resolve("cold-moj.bin"));
+		return moj;
+	}
+
+	@Benchmark
+	public Mappings warmCacheYarn() throws IOException {
+		return MappingsCache.read(yarnCache, yarnChecksum);
+	}
+
+	@Benchmark
+	public Mappings warmCacheMoj() throws IOException {
+		return MappingsCache.read(mojCache, mojChecksum);
+	}
+
+	@Benchmark
+	public Mappings warmCacheYarnFull() throws IOException {
+		// Cached mappings are lazy, this loads every member like parsing does.
+		Mappings yarn = MappingsCache.read(yarnCache, yarnChecksum);
+		yarn.getMethodMappings();
+		return yarn;
+	}
+}
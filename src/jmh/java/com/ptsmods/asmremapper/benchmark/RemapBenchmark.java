@@ -0,0 +1,71 @@
+package com.ptsmods.asmremapper.benchmark;
+
+import com.ptsmods.asmremapper.corpus.CorpusGenerator;
+import com.ptsmods.asmremapper.dump.MapCallFormatter;
+import com.ptsmods.asmremapper.dump.RemappingASMifier;
+import com.ptsmods.asmremapper.hierarchy.ClassHierarchy;
+import com.ptsmods.asmremapper.mappings.ProGuardReader;
+import com.ptsmods.asmremapper.mappings.TinyV2Reader;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.util.TraceClassVisitor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks ASMifying and remapping a single class, like every class in a run is.
+ * The formatter is shared between invocations, just like it is shared between all classes in a run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RemapBenchmark {
+	@Param({"small", "medium", "huge"})
+	public String size;
+	private Path dir;
+	private ClassHierarchy hierarchy;
+	private MapCallFormatter formatter;
+	private byte[] classBytes;
+
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("asmremapper-bench");
+		CorpusGenerator generator = CorpusGenerator.realistic(42);
+
+		hierarchy = new ClassHierarchy(List.of(generator.writeMinecraftJar(dir.resolve("minecraft-named.jar"))), null);
+		formatter = new MapCallFormatter(TinyV2Reader.read(generator.writeYarn(dir)), ProGuardReader.read(generator.writeMoj(dir)), hierarchy, "map");
+		classBytes = switch (size) {
+			case "small" -> generator.createModClass("com/example/Small", 1, 20);
+			case "medium" -> generator.createModClass("com/example/Medium", 20, 50);
+			case "huge" -> generator.createModClass("com/example/Huge", 200, 200);
+			default -> throw new IllegalArgumentException("Unknown size " + size);
+		};
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		hierarchy.close();
+		try (Stream<Path> files = Files.walk(dir)) {
+			for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) Files.delete(file);
+		}
+	}
+
+	@Benchmark
+	public String remap() {
+		StringWriter writer = new StringWriter();
+		new ClassReader(classBytes).accept(new TraceClassVisitor(null, new RemappingASMifier(formatter, "com.example.dump", "com.example.ASMDump"),
+				new PrintWriter(writer)), 0);
+		return writer.toString();
+	}
+}
@@ -1,62 +1,87 @@
 package com.ptsmods.asmremapper;
 
-import com.google.gson.*;
-import com.ptsmods.asmremapper.mappings.*;
-import com.ptsmods.asmremapper.util.Descriptor;
-import com.ptsmods.asmremapper.util.Pair;
+import com.ptsmods.asmremapper.io.ClassInput;
+import com.ptsmods.asmremapper.io.DumpOutput;
+import com.ptsmods.asmremapper.io.IncrementalManifest;
+import com.ptsmods.asmremapper.mappings.Mappings;
+import com.ptsmods.asmremapper.mappings.MappingsCache;
+import com.ptsmods.asmremapper.mappings.Namespace;
+import com.ptsmods.asmremapper.metrics.RemapMetrics;
+import com.ptsmods.asmremapper.metrics.StatsCollector;
+import com.ptsmods.asmremapper.source.ArtifactStore;
+import com.ptsmods.asmremapper.source.LocalMappingsSource;
+import com.ptsmods.asmremapper.source.MappingsSource;
+import com.ptsmods.asmremapper.source.RemoteMappingsSource;
 import joptsimple.ArgumentAcceptingOptionSpec;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.util.ASMifier;
+import org.objectweb.asm.util.TraceClassVisitor;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.BiFunction;
-import java.util.function.Function;
-import java.util.regex.MatchResult;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
-import java.util.zip.ZipFile;
+import java.util.concurrent.FutureTask;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
- * Main class that does the actual ASMifying and remapping.
+ * Commandline entry point that remaps classes using a {@link RemapSession}.
+ * Tools that want to keep the mappings loaded between runs, such as build plugins, should use {@link MappingsLoader} and {@link RemapSession} directly.
  */
 public class ASMRemapper {
-	private static final Gson gson = new GsonBuilder()
-			// Gson can't handle making new instances of Records.
-			.registerTypeAdapter(ClassMapping.class, (JsonDeserializer<ClassMapping>) (src, typeOfSrc, context) ->
-					new ClassMapping(getString(src, "official"), getString(src, "intermediary"), getString(src, "named")))
-			.registerTypeAdapter(MethodMapping.class, (JsonDeserializer<MethodMapping>) (src, typeOfSrc, context) ->
-					new MethodMapping(context.deserialize(src.getAsJsonObject().get("owner"), ClassMapping.class), getString(src, "signature"),
-							getString(src, "officialSignature"), getString(src, "official"), getString(src, "intermediary"), getString(src, "named")))
-			.registerTypeAdapter(FieldMapping.class, (JsonDeserializer<FieldMapping>) (src, typeOfSrc, context) ->
-					new FieldMapping(context.deserialize(src.getAsJsonObject().get("owner"), ClassMapping.class), getString(src, "descriptor"),
-							getString(src, "officialDescriptor"), getString(src, "official"), getString(src, "intermediary"), getString(src, "named")))
-			.create();
+	// About 20 bytes of bytecode per statement keeps generated methods below the 8000 bytes above which HotSpot won't JIT-compile them.
+	private static final int defaultSplitBudget = 250;
+	// The namespaces mods are run in, remapping to the others makes no sense when shipping.
+	private static final Set<Namespace> remapTargets = EnumSet.of(Namespace.INTERMEDIARY, Namespace.MOJ);
 
 	/**
-	 * Parses the commandline arguments and invokes the remapping
+	 * Parses the commandline arguments and invokes the remapping.
+	 * Exits with status 1 if any class could not be remapped.
 	 * @param args The commandline arguments
-	 * @throws IOException If anything goes wrong when downloading the mappings.
+	 * @throws IOException If anything goes wrong when loading or downloading the mappings.
 	 */
 	public static void main(String[] args) throws IOException {
 		OptionParser parser = new OptionParser();
 		parser.accepts("help");
-		ArgumentAcceptingOptionSpec<String> packageOpt = parser.accepts("package", "The package the output class should be put into.").requiredUnless("help").withRequiredArg();
+		ArgumentAcceptingOptionSpec<String> remapToOpt = parser.accepts("remap-to", "Write class files remapped to the given namespace (intermediary or moj) " +
+				"instead of dumps, so they can be shipped as is. Output is a directory, jar or class file.").withRequiredArg();
+		ArgumentAcceptingOptionSpec<String> packageOpt = parser.accepts("package", "The package the output class should be put into.")
+				.requiredUnless("help", "remap-to").withRequiredArg();
 		ArgumentAcceptingOptionSpec<String> mappingsOpt = parser.accepts("mappings", "Path leading to the mappings file.").requiredUnless("help").withRequiredArg();
-		ArgumentAcceptingOptionSpec<String> inputOpt = parser.accepts("input", "Class file or directory to ASMify and remap.").requiredUnless("help").withRequiredArg();
-		ArgumentAcceptingOptionSpec<String> outputOpt = parser.accepts("output", "Java file to output the ASM calls to.").requiredUnless("help").withRequiredArg();
+		ArgumentAcceptingOptionSpec<String> inputOpt = parser.accepts("input", "Class file, directory or jar to ASMify and remap.").requiredUnless("help").withRequiredArg();
+		ArgumentAcceptingOptionSpec<String> outputOpt = parser.accepts("output", "Java file or directory to output the ASM calls to, or a zip to put all of them in.").requiredUnless("help").withRequiredArg();
 		ArgumentAcceptingOptionSpec<String> cacheOpt = parser.accepts("cache", "Directory to store cache.").withRequiredArg();
 		ArgumentAcceptingOptionSpec<String> mapUtilOpt = parser.accepts("maputil", "Full name of the class that contains the #map(String, String, String) method to use to map.")
-				.requiredUnless("help").withRequiredArg();
+				.requiredUnless("help", "remap-to").withRequiredArg();
 		ArgumentAcceptingOptionSpec<String> mapMethodOpt = parser.accepts("mapmethod", "Name of the map method, defaults to map.").withRequiredArg().defaultsTo("map");
+		ArgumentAcceptingOptionSpec<Integer> threadsOpt = parser.accepts("threads", "Amount of classes to remap concurrently when the input is a directory or jar, defaults to 1.")
+				.withRequiredArg().ofType(Integer.class).defaultsTo(1);
+		ArgumentAcceptingOptionSpec<String> filterOpt = parser.accepts("filter", "Only remap classes in packages matching this glob when the input is a directory or jar, " +
+				"e.g. com.example.mixin.** .").withRequiredArg();
+		ArgumentAcceptingOptionSpec<String> mojMappingsOpt = parser.accepts("mojmappings", "Moj client mappings file, or directory containing <version>.txt " +
+				"or <version>/client.txt files, to use instead of downloading them.").withRequiredArg();
+		ArgumentAcceptingOptionSpec<String> manifestOpt = parser.accepts("manifest", "Url of the version manifest to get Moj mappings from.")
+				.withRequiredArg().defaultsTo(RemoteMappingsSource.defaultManifestUrl);
+		ArgumentAcceptingOptionSpec<String> classpathOpt = parser.accepts("classpath", "Jars and directories containing the classes referenced by the input, " +
+				"most notably the named Minecraft jar, used to find where inherited methods are declared.").withRequiredArg().withValuesSeparatedBy(File.pathSeparatorChar);
+		parser.accepts("watch", "Keep running after remapping the input directory and remap classes as they change. " +
+				"Also accepts 'dump <class file> <output file> [package]' and 'quit' commands on standard input.");
+		parser.accepts("rebuild", "Remap every class, even those that did not change since the last run with the same cache.");
+		parser.accepts("offline", "Never touch the network, Moj mappings must already be in the store or given with --mojmappings.");
+		ArgumentAcceptingOptionSpec<Integer> splitOpt = parser.accepts("split", "Put every field and method in its own helper method and split methods " +
+				"with more statements than the given budget, defaults to " + defaultSplitBudget + ". Required for dumps of huge classes to compile.")
+				.withOptionalArg().ofType(Integer.class).defaultsTo(defaultSplitBudget);
+		parser.accepts("hoist", "Look up every distinct Minecraft name only once per dump, the first time it's used, " +
+				"rather than calling the map method for every reference.");
+		parser.accepts("stats", "Print where the time went and how references got resolved once done.");
+		ArgumentAcceptingOptionSpec<String> statsJsonOpt = parser.accepts("stats-json", "File to write the stats to as JSON once done, " +
+				"including the timings of every single class.").withRequiredArg();
 
 		OptionSet options = parser.parse(args);
 		if (options.has("help")) {
@@ -71,506 +96,210 @@ public class ASMRemapper {
 		String cache = options.valueOf(cacheOpt);
 		String mapUtil = options.valueOf(mapUtilOpt);
 		String mapMethod = options.valueOf(mapMethodOpt);
-
-		String minecraftVer = mappings.substring(mappings.lastIndexOf(File.separatorChar) + 1 + "yarn-".length());
-		minecraftVer = minecraftVer.substring(0, minecraftVer.indexOf('+'));
-
-		Path cacheDir = cache == null ? null : Paths.get(cache);
-		if (cacheDir != null) {
-			if (!Files.exists(cacheDir)) Files.createDirectories(cacheDir);
-			if (!Files.isDirectory(cacheDir)) {
-				System.err.println("Cache is not a directory, not using cache.");
-				cacheDir = null;
-			}
-
-			if (cacheDir != null) {
-				cacheDir = cacheDir.resolve("ASMRemapper").resolve(Paths.get(mappings).getParent().getFileName().toString());
-				Files.createDirectories(cacheDir);
-			}
+		int threads = Math.max(1, options.valueOf(threadsOpt));
+		String filter = options.valueOf(filterOpt);
+		String mojMappings = options.valueOf(mojMappingsOpt);
+		boolean offline = options.has("offline");
+		boolean rebuild = options.has("rebuild");
+		boolean watch = options.has("watch");
+		int splitBudget = options.has("split") ? Math.max(1, options.valueOf(splitOpt)) : 0;
+		boolean hoist = options.has("hoist");
+		String remapToName = options.valueOf(remapToOpt);
+		if (remapToName != null && remapTargets.stream().noneMatch(namespace -> namespace.name().equalsIgnoreCase(remapToName))) {
+			System.err.println("Cannot remap to namespace " + remapToName + ", expected intermediary or moj.");
+			return;
 		}
-
-		Mappings yarn = loadYarnMappings(mappings, cacheDir);
-		Mappings moj = loadMojMappings(minecraftVer, cacheDir);
-
-		File inputFile = new File(input);
-		File outputFile = new File(output);
-		if (!inputFile.exists()) {
+		Namespace remapTo = remapToName == null ? null : Namespace.of(remapToName);
+		List<Path> classpath = new ArrayList<>(options.valuesOf(classpathOpt).stream().map(Paths::get).toList());
+		// Remapped classes must have their overrides of Minecraft methods renamed too, which requires their own hierarchy.
+		if (remapTo != null && (Files.isDirectory(Paths.get(input)) || ClassInput.isArchive(Paths.get(input)))) classpath.add(Paths.get(input));
+		String statsJson = options.valueOf(statsJsonOpt);
+		StatsCollector stats = options.has("stats") || statsJson != null ? new StatsCollector() : null;
+		RemapMetrics metrics = stats == null ? RemapMetrics.none : stats;
+
+		Path inputPath = Paths.get(input);
+		Path outputPath = Paths.get(output);
+		if (!Files.exists(inputPath)) {
 			System.err.println("Given input file does not exist.");
 			return;
 		}
 
-		AtomicInteger count = new AtomicInteger();
-
-		if (inputFile.isDirectory()) {
-			if (outputFile.exists() && !outputFile.isDirectory()) {
-				System.err.println("Output is not a directory while input is.");
-				return;
-			}
-
-			String absoluteInput = inputFile.getAbsolutePath() + '/';
-
-			Stream<Path> fileStream = Files.walk(inputFile.toPath());
-			fileStream
-					.filter(path -> Files.isRegularFile(path) && path.getFileName().toString().endsWith(".class"))
-					.forEach(path -> {
-						try {
-							String extra = path.toAbsolutePath().toString().substring(absoluteInput.length()).replace(".class", "Dump.java");
-							String classOutput = output + File.separatorChar + extra;
-
-							File outputParent = new File(classOutput).getAbsoluteFile().getParentFile();
-
-							if (!outputParent.exists() && !outputParent.mkdirs()) {
-								System.err.println("Could not create parent directories for file " + classOutput);
-								return;
-							}
-
-							remap(path.toAbsolutePath().toString(), classOutput, yarn, moj, pckg + (extra.contains(File.separator) ? '.' +
-									extra.substring(0, extra.lastIndexOf(File.separatorChar)).replace(File.separatorChar, '.') : ""), mapUtil, mapMethod);
-							count.incrementAndGet();
-						} catch (IOException e) {
-							System.err.println("Could not remap file " + path);
-							e.printStackTrace();
-						}
-					});
-			fileStream.close();
-		} else {
-			if (outputFile.exists() && outputFile.isDirectory()) {
-				System.err.println("Output is a directory while input is a file.");
-				return;
-			}
-
-			if (outputFile.getParentFile() != null && !outputFile.getParentFile().mkdirs()) {
-				System.err.println("Could not make directory to put output in.");
-				return;
-			}
-
-			remap(inputFile.getAbsolutePath(), outputFile.getAbsolutePath(), yarn, moj, pckg, mapUtil, mapMethod);
-			count.incrementAndGet();
-		}
-
-		System.out.printf("Successfully remapped %d classfile%s.\n", count.get(), count.get() == 1 ? "" : "s");
-	}
-
-	private static void remap(String classFile, String outputFile, Mappings yarn, Mappings moj, String pckg, String mapUtil, String mapMethod) throws IOException {
-		PrintStream ogOut = System.out;
-
-		// Capture System output when running ASMifier.
-		OutputStream dataStream = new ByteArrayOutputStream();
-		System.setOut(new PrintStream(dataStream));
-
-		ASMifier.main(new String[] {classFile});
-		System.setOut(ogOut);
-
-		String data = dataStream.toString();
-
-		BiFunction<String, Boolean, Function<MatchResult, String>> methodMatcher = (prefix, appendSC) -> res -> {
-			String clazz = group(res, "class");
-			String method = group(res, "method");
-			String signature = group(res, "signature");
-			MethodMapping mapping;
-
-			if ("<init>".equals(group(res, "method")) || "<clinit>".equals(method)) mapping = null; // (Static) constructors do not get remapped, obviously.
-			else if (yarn.hasMethod(clazz, method, signature))
-				mapping = yarn.getMethodMapping(clazz, method, signature);
-			else {
-				Class<?> owner = null;
-				try {
-					owner = Class.forName(clazz.replace('/', '.'), false, ASMRemapper.class.getClassLoader());
-				} catch (NoClassDefFoundError | ClassNotFoundException ignored) {} // Likely outside source, unlikely that this will require remapping.
-
-				if (owner != null) {
-					Descriptor descriptor = parseDescriptor(signature);
-					if (owner.isEnum() && ("values".equals(method) && descriptor.returnType() == owner.arrayType() && descriptor.parameterTypes().isEmpty() ||
-							"valueOf".equals(method) && descriptor.returnType() == owner && descriptor.parameterTypes().size() == 1 && descriptor.parameterTypes().get(0) == String.class))
-						mapping = null; // Default methods 'values' and 'valueOf' of Enums do not get remapped, obviously.
-					else mapping = yarn.getMethodMapping(getDeclaringClass(owner, method, descriptor.parameterTypes()).getName().replace('.', '/'),
-							method, signature);
-				} else mapping = null;
-			}
-
-			return Matcher.quoteReplacement(String.format(prefix + "(%s, \"%s\", %s, \"%s\", %s)" + (appendSC ? ";" : ""), group(res, "insn"), clazz,
-					mapping == null ? '"' + method + '"' : formatMapCall(mapMethod, mapping.intermediary(), method, moj.getMethodMapping(mapping.owner().official(), mapping.official(), mapping.officialSignature()).named()),
-							signature, group(res, "itf")));
-		};
-
-		// Map method instructions
-		data = Pattern.compile("methodVisitor\\.visitMethodInsn\\((?<insn>[A-Z]*), \"(?<class>net/minecraft/[A-Za-z\\d/$]*)\", \"(?<method>.*)\", \"(?<signature>.*)\", (?<itf>.*)\\);")
-				.matcher(data)
-				.replaceAll(methodMatcher.apply("methodVisitor.visitMethodInsn", true));
-
-		// Map handles
-		data = Pattern.compile("new Handle\\((?<insn>[\\w.]*), \"(?<class>net/minecraft/[A-Za-z\\d/$]*)\", \"(?<method>.*?)\", \"(?<signature>.*?)\", (?<itf>.*?)\\)")
-				.matcher(data)
-				.replaceAll(methodMatcher.apply("new Handle", false));
-
-		// Map field instructions
-		data = Pattern.compile("methodVisitor\\.visitFieldInsn\\((?<insn>[A-Z]*), \"(?<class>net/minecraft/[A-Za-z\\d/$]*)\", \"(?<field>.*)\", \"(?<descriptor>.*)\"\\);")
-				.matcher(data)
-				.replaceAll(res -> Matcher.quoteReplacement(String.format("methodVisitor.visitFieldInsn(%s, \"%s\", %s, \"%s\");", group(res, "insn"), group(res, "class"),
-						formatMapCall(mapMethod, yarn.getFieldMapping(group(res, "class"), group(res, "field")).intermediary(), group(res, "field"), moj.getFieldMapping(yarn.getClassMapping(group(res, "class")).official(),
-										yarn.getFieldMapping(group(res, "class"), group(res, "field")).official()).named()), group(res, "descriptor"))));
-
-		// Map inner classes
-		data = Pattern.compile("classWriter\\.visitInnerClass\\(\"(?<class>net/minecraft/[A-Za-z\\d/]*/[A-Za-z\\d$]*)\", \"(?<innerclass>net/minecraft/[A-Za-z\\d/]*/[A-Za-z\\d$]*)\", \"(?<innerclassname>.*?)\", (?<access>.*?)\\);")
-				.matcher(data)
-				.replaceAll(res -> {
-					ClassMapping classYarn = yarn.getClassMapping(group(res, "class"));
-					String intermediary = classYarn.intermediary();
-					String mojName = moj.getClassMapping(classYarn.official()).named();
-
-					return Matcher.quoteReplacement(String.format("classWriter.visitInnerClass(\"%s\", \"%s\", %s, %s);", group(res, "class"), group(res, "innerclass"),
-							formatMapCall(mapMethod, intermediary.substring(intermediary.lastIndexOf('$') + 1),
-									group(res, "innerclassname"), mojName.substring(mojName.indexOf('$') + 1)), group(res, "access")));
-				});
-
-		// Map Minecraft classes
-		data = Pattern.compile("(?<prefix>L?)(?<class>net/minecraft/[A-Za-z\\d/]*/[A-Za-z\\d$]*)(?<suffix>;?)")
-				.matcher(data)
-				.replaceAll(res -> "\" + " + Matcher.quoteReplacement(formatMapCall(mapMethod, group(res, "prefix") + yarn.getClassMapping(group(res, "class")).intermediary() + group(res, "suffix"),
-						group(res, "prefix") + group(res, "class") + group(res, "suffix"), group(res, "prefix") + (yarn.getClassMapping(group(res, "class")).isObfuscated() ?
-								moj.getClassMapping(yarn.getClassMapping(group(res, "class")).official()).named() : group(res, "class")) + group(res, "suffix"))) + " + \"");
-
-		data = data
-				// Replace package and add import for ASMDump
-				.replaceFirst("package (.*?);", String.format("package %s;\nimport static %s.%s;", pckg, mapUtil, mapMethod))
-				// Replace strings containing a single character used in concatenation with a character for memory efficiency
-				.replaceAll("\\+ \"(.)\"", "+ '$1'")
-				.replaceAll("\"(.)\" \\+", "'$1' +")
-				// Remove empty string concatenation resulting from earlier replacements.
-				.replace(" + \"\"", "").replace("\"\" + ", "");
-
-		// Write result
-		try (PrintWriter writer = new PrintWriter(outputFile)) {
-			writer.write(data);
-			writer.flush();
-		}
-	}
-
-	private static Mappings loadYarnMappings(String mappings, Path cacheDir) throws IOException {
-		if (cacheDir != null && Files.exists(cacheDir) && Files.exists(cacheDir.resolve("yarn.json"))) {
-			try {
-				return gson.fromJson(new BufferedReader(new InputStreamReader(new FileInputStream(cacheDir.resolve("yarn.json").toAbsolutePath().toString()))), Mappings.class);
-			} catch (Exception e) {
-				System.err.println("Could not load cache for yarn mappings.");
-				e.printStackTrace();
-			}
-		}
-
-		Map<String, ClassMapping> classes = new HashMap<>();
-		Map<String, ClassMapping> oClasses = new HashMap<>();
-
-		Map<Pair<ClassMapping, String>, MethodMapping> methods = new HashMap<>();
-		Map<Pair<ClassMapping, String>, FieldMapping> fields = new HashMap<>();
-
-		ZipFile mappingsZip = new ZipFile(new File(mappings));
-
-		List<Pair<Integer, String[]>> rawMappings = new BufferedReader(new InputStreamReader(mappingsZip.getInputStream(mappingsZip.getEntry("mappings/mappings.tiny")))).lines()
-				.skip(1)
-				.map(s -> Pair.of(s.length() - s.stripLeading().length(), s.trim().split("\t")))
-				.toList();
-		mappingsZip.close();
-
-		for (Pair<Integer, String[]> rawMapping : rawMappings) {
-			String[] mapping = rawMapping.right();
-			MappingType type = MappingType.fromChar(mapping[0].charAt(0));
-
-			if (rawMapping.left() == 0 && type == MappingType.CLASS) {
-				ClassMapping classMapping = new ClassMapping(mapping[1], mapping[2], mapping.length > 3 ? mapping[3] : mapping[2]); // No mapping yet
-				classes.put(mapping.length > 3 ? mapping[3] : mapping[2], classMapping);
-				oClasses.put(mapping[1], classMapping);
-			}
+		boolean singleFile = !Files.isDirectory(inputPath) && !ClassInput.isArchive(inputPath);
+		if (!singleFile && Files.exists(outputPath) && !Files.isDirectory(outputPath) && !ClassInput.isArchive(outputPath)) {
+			System.err.println("Output is not a directory while input is.");
+			return;
 		}
 
-		ClassMapping lastClass = null;
-		Pattern officialClassPatternSig = Pattern.compile("(?<=[();ZBCDFIJS])L(?<officialclassname>[a-z$\\d]*?);");
-		Pattern officialClassPatternDesc = Pattern.compile("^L([a-z$\\d]*?);");
-
-		for (Pair<Integer, String[]> rawMapping : rawMappings) {
-			String[] mapping = rawMapping.right();
-			MappingType type = MappingType.fromChar(mapping[0].charAt(0));
-			if (type == MappingType.PARAM) continue;
-
-			if (type == MappingType.CLASS) {
-				if (rawMapping.left() == 0) lastClass = classes.get(mapping.length > 3 ? mapping[3] : mapping[2]);
-				continue;
-			}
-
-			Objects.requireNonNull(lastClass);
-			if (type == MappingType.METHOD) {
-				String namedSig = officialClassPatternSig.matcher(mapping[1])
-						.replaceAll(res -> Matcher.quoteReplacement('L' + oClasses.get(group(res, "officialclassname")).named() + ';'));
-
-				methods.put(Pair.of(lastClass, mapping[4] + namedSig),
-						new MethodMapping(lastClass, namedSig, mapping[1], mapping[2], mapping[3], mapping[4]));
-			}
-			else if (type == MappingType.FIELD) {
-				fields.put(Pair.of(lastClass, mapping[4]),
-						new FieldMapping(lastClass, officialClassPatternDesc.matcher(mapping[1])
-								.replaceAll(res -> Matcher.quoteReplacement('L' + oClasses.get(group(res, "officialclassname")).named() + ';')),
-								mapping[1], mapping[2], mapping[3], mapping[4]));
-			}
+		if (singleFile && Files.isDirectory(outputPath)) {
+			System.err.println("Output is a directory while input is a file.");
+			return;
 		}
 
-		Mappings yarn = new Mappings(Mappings.Type.YARN, classes, methods, fields);
-
-		if (cacheDir != null) {
-			Path cacheFile = cacheDir.resolve("yarn.json");
-
-			try (PrintWriter writer = new PrintWriter(cacheFile.toAbsolutePath().toString())) {
-				gson.toJson(yarn, writer);
-				writer.flush();
-			}
+		if (watch && (!Files.isDirectory(inputPath) || ClassInput.isArchive(outputPath))) {
+			System.err.println("Watching requires both the input and output to be directories.");
+			return;
 		}
 
-		return yarn;
-	}
-
-	private static Mappings loadMojMappings(String minecraftVer, Path cacheDir) throws IOException {
-		Pattern officialClassPatternDesc = Pattern.compile("^L([a-z$\\d]*?);");
+		String mappingsName = mappings.substring(mappings.lastIndexOf(File.separatorChar) + 1 + "yarn-".length());
+		String minecraftVer = mappingsName.substring(0, mappingsName.indexOf('+'));
+		Path cacheDir = getCacheDir(cache, mappings);
+
+		// Downloaded artifacts are shared by all projects, so they're kept outside the per-project cache dir.
+		ArtifactStore store = new ArtifactStore(cacheDir == null ? Paths.get(System.getProperty("java.io.tmpdir"), "ASMRemapper", "store") :
+				cacheDir.getParent().resolve("store"));
+		MappingsSource mojSource = mojMappings == null ? new RemoteMappingsSource(store, new URL(options.valueOf(manifestOpt)), offline) :
+				new LocalMappingsSource(Paths.get(mojMappings));
+
+		long yarnChecksum = MappingsCache.checksum(Paths.get(mappings));
+		MappingsLoader loader = new MappingsLoader(cacheDir == null ? null : cacheDir.getParent(), metrics);
+		// Mappings are only loaded once the first class actually needs remapping, so runs in which nothing changed never load them.
+		FutureTask<RemapSession> session = new FutureTask<>(() -> {
+			// Neither mappings depend on the other, so Moj is loaded (or downloaded) on its own thread meanwhile.
+			FutureTask<Mappings> moj = new FutureTask<>(() -> loader.loadMoj(minecraftVer, mojSource));
+			Thread mojThread = new Thread(moj, "ASMRemapper Moj mappings");
+			mojThread.setDaemon(true);
+			mojThread.start();
+
+			return RemapSession.builder()
+					.yarn(loader.loadYarn(Paths.get(mappings), yarnChecksum))
+					.moj(moj.get())
+					// Classes on our own classpath are still found, so a Minecraft jar put there keeps working without --classpath.
+					.classpath(classpath)
+					.mapUtil(mapUtil)
+					.mapMethod(mapMethod)
+					.split(splitBudget)
+					.hoistNames(hoist)
+					.metrics(metrics)
+					.build();
+		});
 
-		// If we store the cache file in the passed cache dir, the file will not be used when the Yarn mappings get updated
-		// even though the project effectively uses the same Moj mappings.
-		Path cacheFile = cacheDir == null ? null : cacheDir.getParent().resolve(minecraftVer + "-moj.json");
-		if (cacheDir != null && Files.exists(cacheFile)) {
+		// Every input/output pair gets its own manifest, the identity covers everything else that affects the generated dumps.
+		// The Moj mappings are identified by their source, so they don't have to be fetched just to find out nothing changed.
+		Path manifestFile = cacheDir == null ? null : cacheDir.resolve("incremental")
+				.resolve(Long.toHexString(MappingsCache.checksum(inputPath.toAbsolutePath() + "\n" + outputPath.toAbsolutePath())) + ".bin");
+		long identity = MappingsCache.checksum(String.join("\n", String.valueOf(pckg), String.valueOf(mapUtil), mapMethod, minecraftVer,
+				Long.toString(yarnChecksum), mojSource.identify(minecraftVer), Integer.toString(splitBudget), Boolean.toString(hoist), String.valueOf(remapTo),
+				String.valueOf(filter), classpath.stream().map(path -> path.toAbsolutePath().toString()).sorted().collect(Collectors.joining(File.pathSeparator))));
+		// The stored manifest is kept whatever its identity, as it's the only record of the outputs the previous run left behind.
+		IncrementalManifest stored = manifestFile == null ? null : IncrementalManifest.load(manifestFile);
+		IncrementalManifest previous = stored == null || rebuild || stored.getIdentity() != identity ? new IncrementalManifest(identity) : stored;
+		IncrementalManifest current = new IncrementalManifest(identity);
+
+		Remapper remapper = new Remapper(session, pckg, threads, metrics, remapTo);
+		Predicate<String> classFilter = filter == null ? path -> true : ClassInput.packageGlob(filter);
+		int failed;
+		try (remapper; ClassInput classInput = ClassInput.open(inputPath, classFilter);
+			 DumpOutput dumpOutput = DumpOutput.open(outputPath, singleFile)) {
+			Remapper.Result result = null;
 			try {
-				return gson.fromJson(new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile.toFile()))), Mappings.class);
-			} catch (Exception e) {
-				System.err.println("Could not load cache for moj mappings.");
-				e.printStackTrace();
-			}
-		}
-
-		Path vmCache = cacheDir == null ? null : cacheDir.getParent().resolve("moj_vm.json");
-		JsonArray versions = null;
-		if (vmCache != null && Files.exists(vmCache)) versions = gson.fromJson(new BufferedReader(new FileReader(vmCache.toFile())), JsonArray.class);
-		if (versions == null || StreamSupport.stream(versions.spliterator(), false).anyMatch(e -> e.getAsJsonObject().get("id").getAsString().equals(minecraftVer))) {
-			// If cached manifest doesn't contain an entry for the requested version, assume it's out of date and update it.
-			versions = gson.fromJson(readPage("https://launchermeta.mojang.com/mc/game/version_manifest.json"), JsonObject.class).get("versions").getAsJsonArray();
-			if (vmCache != null) {
-				PrintWriter wr = new PrintWriter(vmCache.toFile());
-				gson.toJson(versions, wr);
-				wr.flush();
-				wr.close();
+				// Mappings that could not be loaded end the run with an IOException rather than failing every class on its own.
+				result = remapper.remap(classInput, classInput.getClasses(), singleFile, dumpOutput, previous, current);
+			} finally {
+				// Zips are written as a whole, so a failed run leaves the one of the previous run alone.
+				if (result == null || result.failed() > 0) dumpOutput.abort();
 			}
-		}
-
-		String mojRaw = null;
-		for (JsonElement version : versions) {
-			JsonObject vo = version.getAsJsonObject();
-			if (vo.get("id").getAsString().equals(minecraftVer)) {
-				JsonObject client = gson.fromJson(readPage(vo.get("url").getAsString()), JsonObject.class);
-				String mojUrl = client.getAsJsonObject("downloads").getAsJsonObject("client_mappings").get("url").getAsString();
-				mojRaw = readPage(mojUrl);
-				break;
-			}
-		}
-
-		if (mojRaw == null)
-			throw new RuntimeException("Could not get moj mappings for the version the given mappings were built for.");
-
-
-		Map<String, ClassMapping> classes = new HashMap<>();
-		Map<String, ClassMapping> nClasses = new HashMap<>();
-
-		Map<Pair<ClassMapping, String>, MethodMapping> methods = new HashMap<>();
-		Map<Pair<ClassMapping, String>, FieldMapping> fields = new HashMap<>();
-
-		String[] mojRawLines = mojRaw.split("\n");
-
-		for (String line : mojRawLines) {
-			if (line.startsWith("#")) continue;
-
-			String[] lineA = line.trim().split(" ");
-			if (!line.startsWith("    ")) {
-				ClassMapping mapping = new ClassMapping(lineA[2].substring(0, lineA[2].length() - 1), null, lineA[0].replace('.', '/'));
-
-				classes.put(mapping.official(), mapping);
-				nClasses.put(mapping.named(), mapping);
+			failed = result.failed();
+
+			// Outputs of the previous run that this run did not write again are stale, e.g. those of classes that no longer exist or are filtered out now,
+			// or those written to another path after a change to the options. Classes that failed keep theirs.
+			if (stored != null) {
+				Set<String> classes = new HashSet<>(classInput.getClasses());
+				Set<String> outputs = current.getClasses().stream().map(current::getOutput).collect(Collectors.toSet());
+				for (String path : stored.getClasses()) {
+					String staleOutput = stored.getOutput(path);
+					if (!outputs.contains(staleOutput) && (!classes.contains(path) || current.getOutput(path) != null)) dumpOutput.delete(staleOutput);
+				}
 			}
-		}
 
-		ClassMapping currentClass = null;
-		for (String line : mojRawLines) {
-			if (line.startsWith("#")) continue;
-
-			String[] lineA = line.trim().split(" ");
-			if (!line.startsWith("    ")) {
-				currentClass = classes.get(lineA[2].substring(0, lineA[2].length() - 1));
-				continue;
-			}
+			if (manifestFile != null) current.save(manifestFile);
 
-			Objects.requireNonNull(currentClass); // Should not be possible, but to sate IntelliJ's love for warnings.
-			if (lineA[1].contains("(")) {
-				String[] paramTypes = lineA[1].substring(lineA[1].indexOf('(') + 1, lineA[1].length() - 1).split(",");
-				String retType = lineA[0].contains(":") ? lineA[0].split(":")[2] : lineA[0]; // Interface methods don't contain these numbers.
-				String sigRetType = mojParamToSig(retType);
-				String officialSig = String.format("(%s)%s", // Official signature
-						String.join("", Arrays.stream(paramTypes)
-								.map(ASMRemapper::mojParamToSig)
-								.map(s -> s.startsWith("L") && s.endsWith(";") ? Optional.ofNullable(nClasses.get(s.substring(1, s.length() - 1))).map(c -> 'L' + c.official() + ';').orElse(s) : s)
-								.toArray(String[]::new)),
-						sigRetType.startsWith("L") && sigRetType.endsWith(";") ? Optional.ofNullable(nClasses.get(sigRetType.substring(1, sigRetType.length() - 1)))
-								.map(c -> 'L' + c.official() + ';').orElse(sigRetType) : sigRetType);
+			System.out.printf("Successfully remapped %d classfile%s%s%s.\n", result.remapped(), result.remapped() == 1 ? "" : "s",
+					result.unchanged() == 0 ? "" : ", " + result.unchanged() + " unchanged", failed == 0 ? "" : ", " + failed + " failed");
 
-				methods.put(Pair.of(currentClass, lineA[3] + officialSig), new MethodMapping(currentClass,
-						String.format("(%s)%s", // Named signature
-								String.join("", Arrays.stream(paramTypes)
-										.map(ASMRemapper::mojParamToSig)
-										.toArray(String[]::new)),
-								sigRetType),
-						officialSig, lineA[3], null, lineA[1].substring(0, lineA[1].indexOf('('))));
-			} else {
-				String descriptor = mojParamToSig(lineA[0]);
+			if (watch) new Watcher(remapper, inputPath, classInput, classFilter, dumpOutput, current, manifestFile).run(System.in, System.out);
 
-				fields.put(Pair.of(currentClass, lineA[3]), new FieldMapping(currentClass, descriptor,
-						officialClassPatternDesc.matcher(descriptor).matches() ? 'L' + nClasses.get(descriptor.substring(1, descriptor.length() - 1)).official() + ';' : descriptor,
-						lineA[3], null, lineA[1]));
-			}
+			// When watching, the stats cover the whole session.
+			if (options.has("stats")) stats.printSummary(System.out, 10);
+			if (statsJson != null) stats.writeJson(Paths.get(statsJson));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
 		}
 
-		Mappings moj = new Mappings(Mappings.Type.MOJ, classes, methods, fields);
-
-		if (cacheDir != null)
-			try (PrintWriter writer = new PrintWriter(cacheFile.toAbsolutePath().toString())) {
-				gson.toJson(moj, writer);
-				writer.flush();
-			}
-
-		return moj;
-	}
-
-	private static String getString(JsonElement element, String key) {
-		return element.getAsJsonObject().get(key) == null ? null : element.getAsJsonObject().get(key).getAsString();
+		if (failed > 0) System.exit(1);
 	}
 
-	private static String readPage(String urlString) throws IOException {
-		URL url = new URL(urlString);
-		Scanner sc = new Scanner(url.openStream());
-		sc.useDelimiter("\n");
-		StringBuilder sb = new StringBuilder();
-
-		while (sc.hasNext()) sb.append(sc.next()).append('\n');
+	private static Path getCacheDir(String cache, String mappings) throws IOException {
+		if (cache == null) return null;
 
-		return sb.toString();
-	}
-
-	private static String mojParamToSig(String paramType) {
-		if ("".equals(paramType)) return "";
-
-		int arrayDepth = 0;
-		while (paramType.endsWith("[]")) {
-			arrayDepth++;
-			paramType = paramType.substring(0, paramType.length() - 2);
+		Path cacheDir = Paths.get(cache);
+		if (!Files.exists(cacheDir)) Files.createDirectories(cacheDir);
+		if (!Files.isDirectory(cacheDir)) {
+			System.err.println("Cache is not a directory, not using cache.");
+			return null;
 		}
 
-		StringBuilder param = new StringBuilder(switch (paramType) {
-			case "boolean" -> "Z";
-			case "byte" -> "B";
-			case "char" -> "C";
-			case "double" -> "D";
-			case "float" -> "F";
-			case "int" -> "I";
-			case "long" -> "J";
-			case "short" -> "S";
-			case "void" -> "V"; // For return types
-			default -> 'L' + paramType.replace('.', '/') + ';';
-		});
-
-		for (int i = 0; i < arrayDepth; i++) param.insert(0, '[');
-
-		return param.toString();
+		cacheDir = cacheDir.resolve("ASMRemapper").resolve(Paths.get(mappings).getParent().getFileName().toString());
+		Files.createDirectories(cacheDir);
+		return cacheDir;
 	}
 
-	private static String formatMapCall(String mapMethod, String arg1, String arg2, String arg3) {
-		return String.format(mapMethod + "(\"%s\", \"%s\", \"%s\")", arg1.replace("\"", "\\\""), arg2.replace("\"", "\\\""), arg3.replace("\"", "\\\""));
+	/**
+	 * ASMifies the given class without touching any global state, so it is safe to call from multiple threads at once.
+	 * @param classBytes The bytes of the class file to ASMify
+	 * @return The generated Java source
+	 */
+	public static String asmify(byte[] classBytes) {
+		StringWriter writer = new StringWriter();
+		asmify(classBytes, writer);
+		return writer.toString();
 	}
 
-	private static Descriptor parseDescriptor(String descriptor) {
-		List<Class<?>> classes = new ArrayList<>();
-
-		boolean readingRetType = false;
-		int arrayDepth = 0;
-		for (int i = 0; i < descriptor.length(); i++) {
-			if (i == 0 && descriptor.charAt(i) == '(') continue;
-
-			if (descriptor.charAt(i) == ')') {
-				readingRetType = true;
-				continue;
-			}
-
-			if (descriptor.charAt(i) == '[') {
-				arrayDepth++;
-				continue;
-			}
-
-			Class<?> c = switch (descriptor.charAt(i)) {
-				case 'Z' -> boolean.class;
-				case 'B' -> byte.class;
-				case 'C' -> char.class;
-				case 'D' -> double.class;
-				case 'F' -> float.class;
-				case 'I' -> int.class;
-				case 'J' -> long.class;
-				case 'S' -> short.class;
-				case 'L' -> {
-					int sci = descriptor.substring(i + 1).indexOf(';');
-					try {
-						String name = descriptor.substring(i + 1, i + 1 + sci).replace('/', '.');
-
-						i += sci + 1;
-						yield Class.forName(name, false, ASMRemapper.class.getClassLoader());
-					} catch (ClassNotFoundException e) {
-						throw new RuntimeException(e);
-					}
-				}
-				case 'V' -> void.class; // For return types
-				default -> throw new IllegalStateException("Unexpected value: " + descriptor.charAt(i));
-			};
-			while (arrayDepth > 0) {
-				c = c.arrayType();
-				arrayDepth--;
-			}
-
-			if (!readingRetType) classes.add(c);
-			else return new Descriptor(c, Collections.unmodifiableList(classes));
-		}
-
-		throw new IllegalArgumentException("Invalid descriptor");
+	/**
+	 * ASMifies the given class without touching any global state, so it is safe to call from multiple threads at once.
+	 * @param classBuffer Buffer containing the bytes of the class file to ASMify, from its position up to its limit
+	 * @return The generated Java source
+	 */
+	public static String asmify(ByteBuffer classBuffer) {
+		StringWriter writer = new StringWriter();
+		asmify(classBuffer, writer);
+		return writer.toString();
 	}
 
-	private static Class<?> getDeclaringClass(Class<?> owner, String methodName, List<Class<?>> classes) {
-		Class<?> c = owner;
-		Class<?>[] classesArray = classes.toArray(new Class[0]);
-
-		do {
-			owner = c;
-			c = getDeclaringClass0(true, owner, methodName, classesArray);
-			// E.g. PlayerEntity#getUuid() is declared in the Entity class, but that class gets it from the EntityLike interface.
-		} while (c != null);
-
-		return owner;
+	/**
+	 * ASMifies the given class and writes the generated Java source to the given writer.
+	 * The writer is flushed, but not closed.
+	 * @param classBytes The bytes of the class file to ASMify
+	 * @param output The writer to write the generated source to
+	 */
+	public static void asmify(byte[] classBytes, Writer output) {
+		asmify(new ClassReader(classBytes), output);
 	}
 
-	private static Class<?> getDeclaringClass0(boolean skipOwner, Class<?> owner, String methodName, Class<?>... classes) {
-		if (!skipOwner)
-			try {
-				owner.getDeclaredMethod(methodName, classes);
-				return owner;
-			} catch (NoSuchMethodException ignored) {}
-
-		for (Class<?> iface : owner.getInterfaces()) {
-			Class<?> c = getDeclaringClass0(false, iface, methodName, classes);
-			if (c != null) return c;
+	/**
+	 * ASMifies the given class and writes the generated Java source to the given writer.
+	 * The writer is flushed, but not closed.
+	 * @param classBuffer Buffer containing the bytes of the class file to ASMify, from its position up to its limit
+	 * @param output The writer to write the generated source to
+	 */
+	public static void asmify(ByteBuffer classBuffer, Writer output) {
+		ClassReader reader;
+		if (classBuffer.hasArray())
+			reader = new ClassReader(classBuffer.array(), classBuffer.arrayOffset() + classBuffer.position(), classBuffer.remaining());
+		else {
+			// Direct or read-only buffers have no accessible array, so we'll have to copy.
+			byte[] classBytes = new byte[classBuffer.remaining()];
+			classBuffer.duplicate().get(classBytes);
+			reader = new ClassReader(classBytes);
 		}
 
-		Class<?> sup = owner.getSuperclass();
-		if (sup != null)
-			return getDeclaringClass0(false, sup, methodName, classes);
-
-		return null;
+		asmify(reader, output);
 	}
 
-	private static String group(MatchResult res, String name) {
-		return ((Matcher) res).group(name); // For some reason, this method is not part of MatchResult.
+	private static void asmify(ClassReader reader, Writer output) {
+		PrintWriter writer = output instanceof PrintWriter printWriter ? printWriter : new PrintWriter(output);
+		// Same as what ASMifier#main does, except the output goes to our own writer rather than System.out.
+		reader.accept(new TraceClassVisitor(null, new ASMifier(), writer), 0);
+		writer.flush();
 	}
 }
@@ -0,0 +1,120 @@
+package com.ptsmods.asmremapper;
+
+import com.ptsmods.asmremapper.mappings.Mappings;
+import com.ptsmods.asmremapper.mappings.MappingsCache;
+import com.ptsmods.asmremapper.mappings.ProGuardReader;
+import com.ptsmods.asmremapper.mappings.TinyV2Reader;
+import com.ptsmods.asmremapper.metrics.RemapMetrics;
+import com.ptsmods.asmremapper.source.MappingsSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Loads Yarn and Moj mappings, going through the binary cache if a cache directory is given.
+ * The loaded mappings are immutable and can be shared by any amount of {@link RemapSession}s.
+ * Yarn and Moj mappings can be loaded on separate threads at the same time.
+ * <p>
+ * The cache layout is the one used by the commandline tool, so caches made by either can be used by the other.
+ */
+public class MappingsLoader {
+	private final Path cacheDir;
+	private final RemapMetrics metrics;
+
+	/**
+	 * Constructs a new MappingsLoader.
+	 * @param cacheDir The directory to keep parsed mappings in, e.g. {@code .gradle/ASMRemapper}, or null to always parse the mappings
+	 * @param metrics The metrics to report the time spent loading to
+	 */
+	public MappingsLoader(Path cacheDir, RemapMetrics metrics) {
+		this.cacheDir = cacheDir;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Constructs a new MappingsLoader that does not report any metrics.
+	 * @param cacheDir The directory to keep parsed mappings in, e.g. {@code .gradle/ASMRemapper}, or null to always parse the mappings
+	 */
+	public MappingsLoader(Path cacheDir) {
+		this(cacheDir, RemapMetrics.none);
+	}
+
+	/**
+	 * Loads the Yarn mappings in the given mappings jar.
+	 * @param mappingsJar The Yarn mappings jar, e.g. {@code yarn-1.18.1+build.1-v2.jar}
+	 * @return The loaded mappings
+	 * @throws IOException If the mappings could not be read
+	 */
+	public Mappings loadYarn(Path mappingsJar) throws IOException {
+		return loadYarn(mappingsJar, MappingsCache.checksum(mappingsJar));
+	}
+
+	/**
+	 * Loads the Yarn mappings in the given mappings jar of which the checksum is already known.
+	 * @param mappingsJar The Yarn mappings jar, e.g. {@code yarn-1.18.1+build.1-v2.jar}
+	 * @param checksum The checksum of the jar as returned by {@link MappingsCache#checksum(Path)}
+	 * @return The loaded mappings
+	 * @throws IOException If the mappings could not be read
+	 */
+	public Mappings loadYarn(Path mappingsJar, long checksum) throws IOException {
+		// Mappings jars are named the same in every project, but are stored in directories named after the mappings version.
+		Path cacheFile = cacheDir == null ? null : cacheDir.resolve(mappingsJar.toAbsolutePath().getParent().getFileName().toString()).resolve("yarn.bin");
+		return load(cacheFile, checksum, "yarn", RemapMetrics.Phase.YARN_CACHE_LOAD, RemapMetrics.Phase.YARN_PARSE, () -> TinyV2Reader.read(mappingsJar));
+	}
+
+	/**
+	 * Loads the Moj client mappings of the given Minecraft version, fetching them first if required.
+	 * @param minecraftVer The Minecraft version, e.g. 1.18.1
+	 * @param source The source to get the mappings from
+	 * @return The loaded mappings
+	 * @throws IOException If the mappings could not be fetched or read
+	 */
+	public Mappings loadMoj(String minecraftVer, MappingsSource source) throws IOException {
+		long start = System.nanoTime();
+		Path mappingsFile = source.getClientMappings(minecraftVer);
+		metrics.phase(RemapMetrics.Phase.MOJ_DOWNLOAD, System.nanoTime() - start);
+
+		// Not stored per Yarn version, different Yarn builds for the same Minecraft version use the same Moj mappings.
+		Path cacheFile = cacheDir == null ? null : cacheDir.resolve(minecraftVer + "-moj.bin");
+		return load(cacheFile, MappingsCache.checksum(mappingsFile), "moj", RemapMetrics.Phase.MOJ_CACHE_LOAD, RemapMetrics.Phase.MOJ_PARSE,
+				() -> ProGuardReader.read(mappingsFile));
+	}
+
+	private Mappings load(Path cacheFile, long checksum, String name, RemapMetrics.Phase cachePhase, RemapMetrics.Phase parsePhase, Parser parser) throws IOException {
+		long start = System.nanoTime();
+		if (cacheFile != null) {
+			try {
+				Mappings cached = MappingsCache.read(cacheFile, checksum);
+				if (cached != null) {
+					metrics.phase(cachePhase, System.nanoTime() - start);
+					return cached;
+				}
+			} catch (Exception e) {
+				System.err.println("Could not load cache for " + name + " mappings.");
+				e.printStackTrace();
+			}
+		}
+
+		start = System.nanoTime();
+		Mappings mappings = parser.parse();
+		metrics.phase(parsePhase, System.nanoTime() - start);
+
+		if (cacheFile != null) {
+			start = System.nanoTime();
+			Files.createDirectories(cacheFile.getParent());
+			MappingsCache.write(mappings, checksum, cacheFile);
+			metrics.phase(RemapMetrics.Phase.CACHE_WRITE, System.nanoTime() - start);
+
+			// Continue with the lazy cache like warm runs do, so the parsed mappings can be collected.
+			Mappings cached = MappingsCache.read(cacheFile, checksum);
+			if (cached != null) return cached;
+		}
+
+		return mappings;
+	}
+
+	private interface Parser {
+		Mappings parse() throws IOException;
+	}
+}
@@ -0,0 +1,279 @@
+package com.ptsmods.asmremapper;
+
+import com.ptsmods.asmremapper.bytecode.MappingsClassRemapper;
+import com.ptsmods.asmremapper.bytecode.MappingsRemapper;
+import com.ptsmods.asmremapper.dump.MapCallFormatter;
+import com.ptsmods.asmremapper.dump.RemappingASMifier;
+import com.ptsmods.asmremapper.hierarchy.ClassHierarchy;
+import com.ptsmods.asmremapper.mappings.MappingTree;
+import com.ptsmods.asmremapper.mappings.Mappings;
+import com.ptsmods.asmremapper.mappings.Namespace;
+import com.ptsmods.asmremapper.metrics.RemapMetrics;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.util.TraceClassVisitor;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Turns classes into remapped ASM dumps, or remaps them straight to another namespace, using a fixed set of mappings, meant to be created once and then used for any amount of classes,
+ * e.g. by every task of a build.
+ * <p>
+ * Sessions are immutable and thread-safe, classes may be dumped from multiple threads at once.
+ * Map calls resolved for one class are cached and reused for every following class.
+ * <pre>{@code
+ * MappingsLoader loader = new MappingsLoader(cacheDir);
+ * try (RemapSession session = RemapSession.builder()
+ *         .yarn(loader.loadYarn(yarnJar))
+ *         .moj(loader.loadMoj("1.18.1", new LocalMappingsSource(mojMappings)))
+ *         .classpath(List.of(minecraftJar))
+ *         .mapUtil("com.example.ASMDump")
+ *         .build()) {
+ *     String source = session.dump(classBytes, "com.example.dumps");
+ * }
+ * }</pre>
+ */
+public class RemapSession implements Closeable {
+	private final MapCallFormatter formatter;
+	private final ClassHierarchy hierarchy;
+	private final Map<Namespace, MappingsRemapper> remappers = new EnumMap<>(Namespace.class);
+	private final String mapUtil;
+	private final int splitBudget;
+	private final boolean hoistNames;
+
+	private RemapSession(MappingTree mappings, MapCallFormatter formatter, ClassHierarchy hierarchy, String mapUtil, int splitBudget, boolean hoistNames) {
+		this.formatter = formatter;
+		this.hierarchy = hierarchy;
+		this.mapUtil = mapUtil;
+		this.splitBudget = splitBudget;
+		this.hoistNames = hoistNames;
+
+		for (Namespace namespace : Namespace.values())
+			remappers.put(namespace, new MappingsRemapper(mappings, hierarchy, namespace));
+	}
+
+	/**
+	 * @return A new builder to create a session with
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * ASMifies and remaps the given class.
+	 * @param classBytes The bytes of the class file
+	 * @param pckg The package to put the generated dump in
+	 * @return The generated Java source
+	 */
+	public String dump(byte[] classBytes, String pckg) {
+		StringWriter writer = new StringWriter();
+		try {
+			dump(classBytes, pckg, writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // Can't happen, StringWriters don't throw.
+		}
+
+		return writer.toString();
+	}
+
+	/**
+	 * ASMifies and remaps the given class and streams the generated Java source to the given writer while it is being generated,
+	 * so the source of the whole class is never held in memory at once.
+	 * The writer is flushed, but not closed.
+	 * @param classBytes The bytes of the class file
+	 * @param pckg The package to put the generated dump in
+	 * @param output The writer to write the generated source to, preferably buffered
+	 * @throws IOException If the source could not be written
+	 * @throws IllegalStateException If the session was built without a map util
+	 */
+	public void dump(byte[] classBytes, String pckg, Writer output) throws IOException {
+		if (mapUtil == null) throw new IllegalStateException("A map util is required to generate dumps.");
+
+		PrintWriter writer = output instanceof PrintWriter printWriter ? printWriter : new PrintWriter(output);
+		new ClassReader(classBytes).accept(new TraceClassVisitor(null, new RemappingASMifier(formatter, pckg, mapUtil, writer, splitBudget, hoistNames), writer), 0);
+		writer.flush();
+		// PrintWriter swallows exceptions, so this is the only way to find out whether anything went wrong.
+		if (writer.checkError()) throw new IOException("Could not write dump");
+	}
+
+	/**
+	 * Remaps the given class to the given namespace, rather than turning it into a dump.
+	 * The result can be loaded as is in an environment using the target namespace, without any lookups at runtime.
+	 * @param classBytes The bytes of the class file
+	 * @param target The namespace to remap to
+	 * @return The bytes of the remapped class file
+	 */
+	public byte[] remap(byte[] classBytes, Namespace target) {
+		ClassWriter writer = new ClassWriter(0); // Remapping names does not change any frames or maxs.
+		new ClassReader(classBytes).accept(new MappingsClassRemapper(writer, getRemapper(target)), 0);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * @param target The namespace to map to
+	 * @return The remapper mapping classes and members of this session to the given namespace
+	 */
+	public MappingsRemapper getRemapper(Namespace target) {
+		return remappers.get(target);
+	}
+
+	/**
+	 * @return The formatter creating the map calls, shared by every class dumped with this session
+	 */
+	public MapCallFormatter getFormatter() {
+		return formatter;
+	}
+
+	/**
+	 * @return The full name of the class containing the map method, null if this session is only used to remap classes
+	 */
+	public String getMapUtil() {
+		return mapUtil;
+	}
+
+	/**
+	 * @return The maximum amount of statements per generated method, or 0 if dumps are not split
+	 */
+	public int getSplitBudget() {
+		return splitBudget;
+	}
+
+	/**
+	 * @return Whether every distinct mapped name is only looked up once per dump
+	 */
+	public boolean isHoistingNames() {
+		return hoistNames;
+	}
+
+	/**
+	 * Closes the jars on the classpath of this session.
+	 * @throws IOException If a jar could not be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		hierarchy.close();
+	}
+
+	/**
+	 * Builder for {@link RemapSession}s, the Yarn and Moj mappings are required and so is the map util if the session is used to generate dumps.
+	 */
+	public static class Builder {
+		private Mappings yarn;
+		private Mappings moj;
+		private final List<Path> classpath = new ArrayList<>();
+		private ClassLoader classLoader = RemapSession.class.getClassLoader();
+		private String mapUtil;
+		private String mapMethod = "map";
+		private int splitBudget;
+		private boolean hoistNames;
+		private RemapMetrics metrics = RemapMetrics.none;
+
+		private Builder() {}
+
+		/**
+		 * @param yarn The Yarn mappings the classes were compiled against
+		 * @return This builder
+		 */
+		public Builder yarn(Mappings yarn) {
+			this.yarn = yarn;
+			return this;
+		}
+
+		/**
+		 * @param moj The Moj mappings of the same Minecraft version
+		 * @return This builder
+		 */
+		public Builder moj(Mappings moj) {
+			this.moj = moj;
+			return this;
+		}
+
+		/**
+		 * Adds jars and directories to find the classes referenced by dumped classes in, most notably the named Minecraft jar.
+		 * These are used to find where inherited methods are declared.
+		 * @param classpath The jars and directories to add
+		 * @return This builder
+		 */
+		public Builder classpath(Collection<Path> classpath) {
+			this.classpath.addAll(classpath);
+			return this;
+		}
+
+		/**
+		 * @param classLoader The class loader to look for referenced classes in when they're not on the classpath, may be null.
+		 *                    Defaults to the class loader of this library.
+		 * @return This builder
+		 */
+		public Builder classLoader(ClassLoader classLoader) {
+			this.classLoader = classLoader;
+			return this;
+		}
+
+		/**
+		 * @param mapUtil The full name of the class containing the map method
+		 * @return This builder
+		 */
+		public Builder mapUtil(String mapUtil) {
+			this.mapUtil = mapUtil;
+			return this;
+		}
+
+		/**
+		 * @param mapMethod The name of the map method, defaults to map
+		 * @return This builder
+		 */
+		public Builder mapMethod(String mapMethod) {
+			this.mapMethod = mapMethod;
+			return this;
+		}
+
+		/**
+		 * Splits dumps into a helper method per field, method and record component, and splits methods with more statements than the budget further.
+		 * Dumps of huge classes otherwise exceed the size limit of Java methods and fail to compile.
+		 * @param splitBudget The maximum amount of statements per generated method, or 0 to put everything in a single dump method (the default)
+		 * @return This builder
+		 */
+		public Builder split(int splitBudget) {
+			if (splitBudget < 0) throw new IllegalArgumentException("Split budget can't be negative.");
+			this.splitBudget = splitBudget;
+			return this;
+		}
+
+		/**
+		 * Hoists map calls into constants, so generated dumps look up every distinct name once, the first time it's used,
+		 * rather than every time it's referenced.
+		 * @param hoistNames Whether to hoist map calls, defaults to false
+		 * @return This builder
+		 */
+		public Builder hoistNames(boolean hoistNames) {
+			this.hoistNames = hoistNames;
+			return this;
+		}
+
+		/**
+		 * @param metrics The metrics to report lookups to
+		 * @return This builder
+		 */
+		public Builder metrics(RemapMetrics metrics) {
+			this.metrics = metrics;
+			return this;
+		}
+
+		/**
+		 * @return A new session using the current settings of this builder
+		 * @throws IOException If a jar on the classpath could not be opened
+		 */
+		public RemapSession build() throws IOException {
+			Objects.requireNonNull(yarn, "Yarn mappings are required.");
+			Objects.requireNonNull(moj, "Moj mappings are required.");
+
+			ClassHierarchy hierarchy = new ClassHierarchy(classpath, classLoader);
+			// Only the merged tree is kept around, the separate mappings can be collected once the builder is.
+			// If the Yarn mappings are lazy, the members of both mappings are kept per class until that class is merged.
+			MappingTree mappings = MappingTree.of(yarn, moj);
+			return new RemapSession(mappings, new MapCallFormatter(mappings, hierarchy, mapMethod, metrics), hierarchy, mapUtil, splitBudget, hoistNames);
+		}
+	}
+}
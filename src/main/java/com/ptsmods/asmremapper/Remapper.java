@@ -0,0 +1,223 @@
+package com.ptsmods.asmremapper;
+
+import com.ptsmods.asmremapper.io.ClassInput;
+import com.ptsmods.asmremapper.io.DumpOutput;
+import com.ptsmods.asmremapper.io.IncrementalManifest;
+import com.ptsmods.asmremapper.mappings.Namespace;
+import com.ptsmods.asmremapper.metrics.RemapMetrics;
+import com.ptsmods.asmremapper.util.Pair;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Remaps batches of classes from a {@link ClassInput} into a {@link DumpOutput}, used by both single runs and watch mode.
+ * Classes are either turned into dumps or, if a target namespace is given, remapped into class files of that namespace.
+ * The session, and with it the mappings, is only created once the first class actually needs remapping.
+ */
+class Remapper implements Closeable {
+	private final FutureTask<RemapSession> session;
+	private final String pckg;
+	private final int threads;
+	private final RemapMetrics metrics;
+	private final Namespace target;
+
+	/**
+	 * @param session Task loading the mappings and creating the session, only run once required
+	 * @param pckg The base package of the generated dumps
+	 * @param threads The amount of classes to remap concurrently
+	 * @param metrics The metrics to report the timings of every class to
+	 * @param target The namespace to remap classes to, or null to generate dumps
+	 */
+	Remapper(FutureTask<RemapSession> session, String pckg, int threads, RemapMetrics metrics, Namespace target) {
+		this.session = session;
+		this.pckg = pckg;
+		this.threads = threads;
+		this.metrics = metrics;
+		this.target = target;
+	}
+
+	/**
+	 * Remaps the given classes and writes their dumps, skipping classes that did not change according to the previous manifest.
+	 * Classes that fail to remap are reported and skipped, unless the mappings could not be loaded, which stops the whole batch.
+	 * @param input The input to read the classes from
+	 * @param classes The relative paths of the classes to remap, dumps are written in this order if the output is not concurrent
+	 * @param singleFile Whether the input is a single class, in which case its dump is put in the base package
+	 * @param output The output to write the dumps to
+	 * @param previous The manifest of the previous run
+	 * @param current The manifest to record the hashes of remapped and unchanged classes in, may be the same as the previous one
+	 * @return The result of the batch
+	 * @throws IOException If the mappings could not be loaded
+	 * @throws InterruptedException If the thread got interrupted while waiting on dumps
+	 */
+	Result remap(ClassInput input, Collection<String> classes, boolean singleFile, DumpOutput output, IncrementalManifest previous,
+				 IncrementalManifest current) throws IOException, InterruptedException {
+		int remapped = 0, unchanged = 0, failed = 0;
+		ExecutorService executor = threads == 1 ? null : Executors.newFixedThreadPool(threads);
+		Deque<Pair<String, Future<Dump>>> pending = new ArrayDeque<>();
+		Iterator<String> classesIterator = classes.iterator();
+		// Dumps are prepared by the worker threads, so a class never has to be held in memory as one big String.
+		// Directories get them straight on disk, zips spill them to a temporary file that is copied in once it's this dump's turn.
+		// Remapped classes are written right away too if the order doesn't matter, they're small enough to be handed over otherwise.
+		boolean stream = executor == null || output.isConcurrent();
+
+		try {
+			while (classesIterator.hasNext() || !pending.isEmpty()) {
+				// Keep a bounded amount of classes in flight so finished dumps waiting to be written don't pile up.
+				while (classesIterator.hasNext() && pending.size() < threads * 4) {
+					String path = classesIterator.next();
+					String classPckg = singleFile ? pckg : packageOf(path);
+					Callable<Dump> task = () -> {
+						long start = System.nanoTime();
+						byte[] classBytes = input.read(path);
+						long hash = IncrementalManifest.hash(classBytes);
+						long read = System.nanoTime();
+						// The output path is taken from the manifest, as that of remapped classes can't be known without loading the mappings.
+						String previousOutput = previous.isUpToDate(path, hash) ? previous.getOutput(path) : null;
+						if (previousOutput != null && output.exists(previousOutput)) return new Dump(hash, previousOutput, false, null, null, read - start, 0);
+
+						String outputPath = outputPath(path);
+						if (target != null) {
+							byte[] remappedClass = getSession().remap(classBytes, target);
+							if (!stream) return new Dump(hash, outputPath, true, null, remappedClass, read - start, System.nanoTime() - read);
+
+							output.write(outputPath, remappedClass);
+							return new Dump(hash, outputPath, true, null, null, read - start, System.nanoTime() - read);
+						}
+
+						RemapSession session = getSession(); // Load the mappings before anything gets written.
+						DumpOutput.Prepared dump = output.prepare(outputPath, writer -> session.dump(classBytes, classPckg, writer));
+						return new Dump(hash, outputPath, true, dump, null, read - start, System.nanoTime() - read);
+					};
+
+					pending.add(Pair.of(path, executor == null ? completed(task) : executor.submit(task)));
+				}
+
+				Pair<String, Future<Dump>> next = pending.poll();
+				String path = next.left();
+				try {
+					Dump dump = next.right().get();
+					if (!dump.changed()) {
+						metrics.classUnchanged(path, dump.readNanos());
+						unchanged++;
+					} else {
+						long writeNanos = 0;
+						if (dump.prepared() != null || dump.classBytes() != null) {
+							long start = System.nanoTime();
+							if (dump.prepared() != null) dump.prepared().write();
+							else output.write(dump.output(), dump.classBytes());
+							writeNanos = System.nanoTime() - start;
+						}
+
+						metrics.classRemapped(path, dump.readNanos(), dump.remapNanos(), writeNanos);
+						remapped++;
+					}
+
+					current.put(path, dump.hash(), dump.output());
+				} catch (IOException | ExecutionException e) {
+					// Without mappings no other class can be remapped either, so this is reported once rather than for every class.
+					if (session.isDone()) getSession();
+
+					System.err.println("Could not remap file " + path);
+					(e instanceof ExecutionException ? e.getCause() : e).printStackTrace();
+					failed++;
+				}
+			}
+		} finally {
+			if (executor != null) executor.shutdownNow();
+		}
+
+		return new Result(remapped, unchanged, failed);
+	}
+
+	/**
+	 * Gets the session, loading the mappings first if that has not happened yet.
+	 * @return The session
+	 * @throws IOException If the mappings could not be loaded
+	 */
+	RemapSession getSession() throws IOException {
+		session.run(); // Does nothing if the mappings are already loaded or being loaded by another thread.
+		try {
+			return session.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading mappings", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			while (cause instanceof ExecutionException && cause.getCause() != null) cause = cause.getCause(); // Mappings may be loaded on other threads too
+			if (cause instanceof IOException ioe) throw ioe;
+			if (cause instanceof UncheckedIOException uioe) throw uioe.getCause();
+			throw new IOException("Could not load mappings", cause);
+		}
+	}
+
+	/**
+	 * Closes the session if it got created, which closes the jars on its classpath.
+	 * @throws IOException If a jar could not be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!session.isDone()) return;
+
+		try {
+			session.get().close();
+		} catch (InterruptedException | ExecutionException e) {
+			// The session is done, so this never waits, and if it failed there's nothing to close.
+		}
+	}
+
+	/**
+	 * @return The base package of the generated dumps
+	 */
+	String getPackage() {
+		return pckg;
+	}
+
+	/**
+	 * @param classPath The relative path of a class
+	 * @return The package its dump is put in, the base package followed by the package of the class
+	 */
+	String packageOf(String classPath) {
+		return classPath.indexOf('/') == -1 ? pckg : pckg + '.' + classPath.substring(0, classPath.lastIndexOf('/')).replace('/', '.');
+	}
+
+	/**
+	 * Gets the path a class is written to, which for remapped classes depends on the mappings, so they're loaded if they weren't yet.
+	 * @param classPath The relative path of a class
+	 * @return The relative path of its dump, or of the remapped class if classes are remapped to another namespace
+	 * @throws IOException If the mappings could not be loaded
+	 */
+	String outputPath(String classPath) throws IOException {
+		if (target == null) return dumpPath(classPath);
+
+		String name = classPath.substring(0, classPath.length() - ".class".length());
+		return getSession().getRemapper(target).map(name) + ".class";
+	}
+
+	/**
+	 * @param classPath The relative path of a class
+	 * @return The relative path of its dump
+	 */
+	static String dumpPath(String classPath) {
+		return classPath.substring(0, classPath.length() - ".class".length()) + "Dump.java";
+	}
+
+	private static <T> Future<T> completed(Callable<T> task) {
+		FutureTask<T> future = new FutureTask<>(task);
+		future.run();
+		return future;
+	}
+
+	/**
+	 * @param remapped The amount of classes that were remapped
+	 * @param unchanged The amount of classes that were skipped as they did not change
+	 * @param failed The amount of classes that could not be remapped
+	 */
+	record Result(int remapped, int unchanged, int failed) {}
+
+	// Prepared dumps or class bytes are only set if they still have to be written, streamed classes have already been written by the time they get here.
+	private record Dump(long hash, String output, boolean changed, DumpOutput.Prepared prepared, byte[] classBytes, long readNanos, long remapNanos) {}
+}
@@ -0,0 +1,202 @@
+package com.ptsmods.asmremapper;
+
+import com.ptsmods.asmremapper.io.ClassInput;
+import com.ptsmods.asmremapper.io.DumpOutput;
+import com.ptsmods.asmremapper.io.IncrementalManifest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the mappings loaded and re-dumps classes in an input directory as they change.
+ * <p>
+ * File system events are batched, a batch ends once no events came in for {@link #batchDelay} milliseconds,
+ * so a compiler writing many classes at once results in a single batch.
+ * Commands can be sent on standard input, one per line, to get one-off dumps against the loaded mappings:
+ * <ul>
+ *     <li>{@code dump <class file> <output file> [package]} answers {@code ok <output file>} or {@code error <message>}, the output file cannot be a zip or jar</li>
+ *     <li>{@code quit} stops watching</li>
+ * </ul>
+ */
+class Watcher {
+	private static final long batchDelay = 200;
+	private final Remapper remapper;
+	private final Path root;
+	private final ClassInput input;
+	private final Predicate<String> filter;
+	private final DumpOutput output;
+	private final IncrementalManifest manifest;
+	private final Path manifestFile;
+	private final Map<WatchKey, Path> directories = new HashMap<>();
+	private WatchService watchService;
+
+	/**
+	 * @param remapper The remapper to remap classes with
+	 * @param root The input directory
+	 * @param input The input to read classes from
+	 * @param filter Filter applied to the relative paths of changed classes
+	 * @param output The output to write dumps to
+	 * @param manifest The manifest of the classes that have been remapped so far
+	 * @param manifestFile The file to save the manifest to after every batch, may be null
+	 */
+	Watcher(Remapper remapper, Path root, ClassInput input, Predicate<String> filter, DumpOutput output, IncrementalManifest manifest, Path manifestFile) {
+		this.remapper = remapper;
+		this.root = root;
+		this.input = input;
+		this.filter = filter;
+		this.output = output;
+		this.manifest = manifest;
+		this.manifestFile = manifestFile;
+	}
+
+	/**
+	 * Watches the input directory until the quit command is given or the thread gets interrupted.
+	 * @param commands The stream to read commands from
+	 * @param responses The stream to write responses to
+	 * @throws IOException If the directory could not be watched
+	 * @throws InterruptedException If the thread got interrupted
+	 */
+	void run(InputStream commands, PrintStream responses) throws IOException, InterruptedException {
+		try (WatchService service = root.getFileSystem().newWatchService()) {
+			watchService = service;
+			register(root, new HashSet<>());
+
+			remapper.getSession(); // Get the mappings loaded before any changes come in.
+
+			Thread commandThread = new Thread(() -> readCommands(commands, responses), "ASMRemapper commands");
+			commandThread.setDaemon(true);
+			commandThread.start();
+
+			System.out.println("Watching " + root + " for changes.");
+			while (true) {
+				Set<String> changed = new TreeSet<>();
+				WatchKey key = watchService.take();
+				do {
+					collect(key, changed);
+					key.reset();
+				} while ((key = watchService.poll(batchDelay, TimeUnit.MILLISECONDS)) != null);
+
+				remap(changed);
+			}
+		} catch (ClosedWatchServiceException e) {
+			// Quit command was given.
+		}
+	}
+
+	private void collect(WatchKey key, Set<String> changed) throws IOException {
+		Path directory = directories.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+				// Events got lost, so we'll have to check everything. Unchanged classes are skipped anyway.
+				register(root, changed);
+				continue;
+			}
+
+			Path path = directory.resolve((Path) event.context());
+			// New directories may already contain classes by the time they are registered.
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) register(path, changed);
+			else changed.add(relativize(path));
+		}
+	}
+
+	// Registers the given directory and its subdirectories and adds the classes in them to the given set.
+	private void register(Path directory, Set<String> classes) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths::iterator)
+				if (Files.isDirectory(path)) directories.put(path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), path);
+				else classes.add(relativize(path));
+		}
+	}
+
+	/**
+	 * Remaps the changed classes and deletes the dumps of deleted ones.
+	 * @param changed The relative paths of the files and directories that changed
+	 * @throws IOException If the dump of a deleted class could not be deleted
+	 * @throws InterruptedException If the thread got interrupted while waiting on dumps
+	 */
+	void remap(Set<String> changed) throws IOException, InterruptedException {
+		List<String> classes = new ArrayList<>();
+		int deleted = 0;
+		for (String path : changed) {
+			Path file = root.resolve(path);
+			// Directories get modified whenever a file in them changes, those files get events of their own.
+			if (Files.isDirectory(file)) continue;
+			if (Files.exists(file)) {
+				if (path.endsWith(".class") && filter.test(path) && Files.isRegularFile(file)) classes.add(path);
+				continue;
+			}
+
+			// Deleted, either a single class or a whole directory of them.
+			for (String removed : manifest.getClasses().stream().filter(c -> c.equals(path) || c.startsWith(path + '/')).toList()) {
+				output.delete(manifest.getOutput(removed));
+				manifest.remove(removed);
+				deleted++;
+			}
+		}
+
+		if (classes.isEmpty() && deleted == 0) return;
+
+		Remapper.Result result = remapper.remap(input, classes, false, output, manifest, manifest);
+		if (manifestFile != null) manifest.save(manifestFile);
+
+		System.out.printf("Remapped %d classfile%s%s%s.\n", result.remapped(), result.remapped() == 1 ? "" : "s",
+				result.unchanged() == 0 ? "" : ", " + result.unchanged() + " unchanged", deleted == 0 ? "" : ", " + deleted + " deleted");
+	}
+
+	private void readCommands(InputStream commands, PrintStream responses) {
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(commands, StandardCharsets.UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] args = line.trim().split("\\s+");
+				if (args[0].isEmpty()) continue;
+
+				switch (args[0]) {
+					case "dump" -> {
+						if (args.length < 3) responses.println("error Usage: dump <class file> <output file> [package]");
+						else responses.println(dump(args[1], args[2], args.length > 3 ? args[3] : remapper.getPackage()));
+					}
+					case "quit" -> {
+						watchService.close();
+						return;
+					}
+					default -> responses.println("error Unknown command " + args[0]);
+				}
+
+				responses.flush();
+			}
+		} catch (IOException e) {
+			System.err.println("Could not read commands.");
+			e.printStackTrace();
+		}
+	}
+
+	private String dump(String classFile, String outputFile, String pckg) {
+		// A single dump has no path of its own to be put at in a zip.
+		if (ClassInput.isArchive(Paths.get(outputFile))) return "error Cannot dump a single class into an archive " + outputFile;
+
+		try (DumpOutput output = DumpOutput.open(Paths.get(outputFile), true)) {
+			byte[] classBytes = Files.readAllBytes(Paths.get(classFile));
+			RemapSession session = remapper.getSession();
+			output.write(outputFile, writer -> session.dump(classBytes, pckg, writer));
+
+			return "ok " + outputFile;
+		} catch (Exception e) {
+			return "error " + e;
+		}
+	}
+
+	private String relativize(Path path) {
+		return root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+	}
+}
@@ -0,0 +1,38 @@
+package com.ptsmods.asmremapper.bytecode;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.MethodRemapper;
+
+/**
+ * {@link ClassRemapper} that also renames lambdas and method references implementing Minecraft interfaces,
+ * using {@link MappingsRemapper#mapInvokeDynamicMethodName(String, String, Handle, Object[])}.
+ */
+public class MappingsClassRemapper extends ClassRemapper {
+	private final MappingsRemapper mappingsRemapper;
+
+	/**
+	 * Constructs a new MappingsClassRemapper.
+	 * @param classVisitor The visitor the remapped class is passed on to
+	 * @param remapper The remapper to remap with
+	 */
+	public MappingsClassRemapper(ClassVisitor classVisitor, MappingsRemapper remapper) {
+		super(Opcodes.ASM9, classVisitor, remapper);
+		mappingsRemapper = remapper;
+	}
+
+	@Override
+	protected MethodVisitor createMethodRemapper(MethodVisitor methodVisitor) {
+		return new MethodRemapper(Opcodes.ASM9, methodVisitor, remapper) {
+			@Override
+			public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle, Object... bootstrapMethodArguments) {
+				// The name is mapped before the descriptor and arguments are, the name passed on is then left as is by the remapper.
+				super.visitInvokeDynamicInsn(mappingsRemapper.mapInvokeDynamicMethodName(name, descriptor, bootstrapMethodHandle, bootstrapMethodArguments),
+						descriptor, bootstrapMethodHandle, bootstrapMethodArguments);
+			}
+		};
+	}
+}
@@ -0,0 +1,102 @@
+package com.ptsmods.asmremapper.bytecode;
+
+import com.ptsmods.asmremapper.hierarchy.ClassHierarchy;
+import com.ptsmods.asmremapper.mappings.MappingTree;
+import com.ptsmods.asmremapper.mappings.MappingTree.MemberEntry;
+import com.ptsmods.asmremapper.mappings.Namespace;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+/**
+ * Remapper for ASM's {@link ClassRemapper} that maps classes compiled against Yarn to another namespace,
+ * so they can be shipped as plain class files instead of as dumps that look up every name at runtime.
+ * <p>
+ * Members inherited from Minecraft classes, including overrides in the remapped classes themselves, are resolved through the class hierarchy,
+ * so the classes being remapped should be on its classpath too. Like dumps, only references in the bytecode are remapped,
+ * names in string constants (e.g. for reflection) are left as is. Instances are thread-safe.
+ * <p>
+ * ASM does not pass the bootstrap arguments of invokedynamic instructions to remappers, so lambdas are only renamed
+ * when classes are remapped with a {@link MappingsClassRemapper}.
+ */
+public class MappingsRemapper extends Remapper {
+	private static final String lambdaMetafactory = "java/lang/invoke/LambdaMetafactory";
+	private final MappingTree mappings;
+	private final ClassHierarchy hierarchy;
+	private final Namespace target;
+
+	/**
+	 * Constructs a new MappingsRemapper.
+	 * @param mappings The mappings, the classes are expected to be compiled against their named namespace
+	 * @param hierarchy The hierarchy used to find where inherited members were declared
+	 * @param target The namespace to map to
+	 */
+	public MappingsRemapper(MappingTree mappings, ClassHierarchy hierarchy, Namespace target) {
+		this.mappings = mappings;
+		this.hierarchy = hierarchy;
+		this.target = target;
+	}
+
+	/**
+	 * @return The namespace this remapper maps to
+	 */
+	public Namespace getTarget() {
+		return target;
+	}
+
+	@Override
+	public String map(String internalName) {
+		return mappings.mapClassName(internalName, Namespace.NAMED, target);
+	}
+
+	@Override
+	public String mapMethodName(String owner, String name, String descriptor) {
+		if (name.charAt(0) == '<') return name; // (Static) constructors
+
+		MemberEntry mapping = mappings.getMethod(Namespace.NAMED, owner, name, descriptor);
+		if (mapping == null) {
+			// Inherited or overridden, in which case the mapping belongs to the class the method was originally declared in.
+			String declaringClass = hierarchy.getDeclaringClass(owner, name, descriptor);
+			mapping = declaringClass == null || declaringClass.equals(owner) ? null : mappings.getMethod(Namespace.NAMED, declaringClass, name, descriptor);
+		}
+
+		return mapping == null ? name : mapping.getName(target);
+	}
+
+	/**
+	 * Maps the name of a lambda or method reference, which is the name of the method it implements.
+	 * That method is looked up by the descriptor LambdaMetafactory gets too, so overloads are told apart
+	 * and methods inherited by the implemented interface are resolved through the class hierarchy.
+	 * @param name The name of the invokedynamic instruction
+	 * @param descriptor The descriptor of the invokedynamic instruction
+	 * @param bootstrapMethod The bootstrap method of the instruction
+	 * @param bootstrapArgs The arguments passed to the bootstrap method
+	 * @return The mapped name, or the name as is if the instruction does not create a lambda
+	 */
+	public String mapInvokeDynamicMethodName(String name, String descriptor, Handle bootstrapMethod, Object[] bootstrapArgs) {
+		// Both metafactory and altMetafactory get the erased descriptor of the implemented method first.
+		Type returnType = Type.getReturnType(descriptor);
+		if (!lambdaMetafactory.equals(bootstrapMethod.getOwner()) || returnType.getSort() != Type.OBJECT
+				|| bootstrapArgs.length == 0 || !(bootstrapArgs[0] instanceof Type samType)) return name;
+
+		return mapMethodName(returnType.getInternalName(), name, samType.getDescriptor());
+	}
+
+	@Override
+	public String mapFieldName(String owner, String name, String descriptor) {
+		MemberEntry mapping = mappings.getField(Namespace.NAMED, owner, name);
+		if (mapping == null) {
+			// Fields are referenced on the class they're accessed on, e.g. the world field of Entity on a subclass of it.
+			String fieldClass = hierarchy.getFieldClass(owner, name, descriptor);
+			mapping = fieldClass == null || fieldClass.equals(owner) ? null : mappings.getField(Namespace.NAMED, fieldClass, name);
+		}
+
+		return mapping == null ? name : mapping.getName(target);
+	}
+
+	@Override
+	public String mapRecordComponentName(String owner, String name, String descriptor) {
+		return mapFieldName(owner, name, descriptor);
+	}
+}
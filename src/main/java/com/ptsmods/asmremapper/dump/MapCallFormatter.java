@@ -0,0 +1,256 @@
+package com.ptsmods.asmremapper.dump;
+
+import com.ptsmods.asmremapper.hierarchy.ClassHierarchy;
+import com.ptsmods.asmremapper.mappings.MappingTree;
+import com.ptsmods.asmremapper.mappings.MappingTree.ClassEntry;
+import com.ptsmods.asmremapper.mappings.MappingTree.MemberEntry;
+import com.ptsmods.asmremapper.mappings.MappingType;
+import com.ptsmods.asmremapper.mappings.Mappings;
+import com.ptsmods.asmremapper.mappings.Namespace;
+import com.ptsmods.asmremapper.metrics.RemapMetrics;
+import org.objectweb.asm.util.Printer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Resolves Minecraft classes, methods and fields referenced by a class and formats the
+ * {@code map(intermediary, yarn, moj)} calls that replace them in generated dumps.
+ * <p>
+ * The same members get referenced by nearly every class, so resolved map calls of methods and fields are cached for the lifetime
+ * of the formatter. Instances are thread-safe and meant to be shared by every class in a run.
+ */
+public class MapCallFormatter {
+	private static final String minecraftPrefix = "net/minecraft/";
+	private static final String notRemappable = ""; // ConcurrentHashMap does not allow null values
+	private final MappingTree mappings;
+	private final ClassHierarchy hierarchy;
+	private final String mapMethod;
+	private final RemapMetrics metrics;
+	private final Map<MemberKey, String> methodCalls = new ConcurrentHashMap<>();
+	private final Map<MemberKey, String> fieldCalls = new ConcurrentHashMap<>();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+
+	/**
+	 * Constructs a new MapCallFormatter.
+	 * @param yarn The Yarn mappings the input classes were compiled against
+	 * @param moj The Moj mappings for the same Minecraft version
+	 * @param hierarchy The hierarchy used to find where inherited methods were declared
+	 * @param mapMethod The name of the map method to call
+	 */
+	public MapCallFormatter(Mappings yarn, Mappings moj, ClassHierarchy hierarchy, String mapMethod) {
+		this(yarn, moj, hierarchy, mapMethod, RemapMetrics.none);
+	}
+
+	/**
+	 * Constructs a new MapCallFormatter that reports its lookups to the given metrics.
+	 * @param yarn The Yarn mappings the input classes were compiled against
+	 * @param moj The Moj mappings for the same Minecraft version
+	 * @param hierarchy The hierarchy used to find where inherited methods were declared
+	 * @param mapMethod The name of the map method to call
+	 * @param metrics The metrics to report lookups to
+	 */
+	public MapCallFormatter(Mappings yarn, Mappings moj, ClassHierarchy hierarchy, String mapMethod, RemapMetrics metrics) {
+		this(MappingTree.of(yarn, moj), hierarchy, mapMethod, metrics);
+	}
+
+	/**
+	 * Constructs a new MapCallFormatter that reports its lookups to the given metrics.
+	 * @param mappings The tree of the Yarn mappings the input classes were compiled against merged with the Moj mappings for the same Minecraft version
+	 * @param hierarchy The hierarchy used to find where inherited methods were declared
+	 * @param mapMethod The name of the map method to call
+	 * @param metrics The metrics to report lookups to
+	 */
+	public MapCallFormatter(MappingTree mappings, ClassHierarchy hierarchy, String mapMethod, RemapMetrics metrics) {
+		this.mappings = mappings;
+		this.hierarchy = hierarchy;
+		this.mapMethod = mapMethod;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return The name of the map method that gets called
+	 */
+	public String getMapMethod() {
+		return mapMethod;
+	}
+
+	/**
+	 * @return The amount of method and field lookups that were answered from the cache
+	 */
+	public long getCacheHits() {
+		return cacheHits.sum();
+	}
+
+	/**
+	 * @return The amount of method and field lookups that had to be resolved
+	 */
+	public long getCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	/**
+	 * Appends a Java expression evaluating to the given string to the given StringBuilder.
+	 * Minecraft classes in the string are replaced with map calls that get concatenated with the rest of the string.
+	 * @param sb The StringBuilder to append to
+	 * @param value The string constant
+	 */
+	public void appendString(StringBuilder sb, String value) {
+		String expression = formatString(value);
+		if (expression == null) Printer.appendString(sb, value);
+		else sb.append(expression);
+	}
+
+	/**
+	 * Formats a Java expression evaluating to the given string in which Minecraft classes are replaced with map calls
+	 * that get concatenated with the rest of the string.
+	 * @param value The string constant
+	 * @return The expression or null if the string does not contain any Minecraft classes, in which case it can be used as is
+	 */
+	public String formatString(String value) {
+		int index = value.indexOf(minecraftPrefix);
+		if (index == -1) return null;
+
+		List<String> parts = new ArrayList<>();
+		int literalStart = 0;
+		while (index != -1) {
+			int end = index + minecraftPrefix.length();
+			while (end < value.length() && isClassNameChar(value.charAt(end))) end++;
+			while (end > index + minecraftPrefix.length() && value.charAt(end - 1) == '/') end--;
+
+			boolean prefix = index > literalStart && value.charAt(index - 1) == 'L';
+			boolean suffix = end < value.length() && value.charAt(end) == ';';
+			String mapCall = end == index + minecraftPrefix.length() ? null : formatClass(value.substring(index, end), prefix, suffix);
+			if (mapCall != null) {
+				int start = prefix ? index - 1 : index;
+				if (start > literalStart) parts.add(literal(value.substring(literalStart, start)));
+				parts.add(mapCall);
+
+				literalStart = suffix ? end + 1 : end;
+			}
+
+			index = value.indexOf(minecraftPrefix, end);
+		}
+		if (parts.isEmpty()) return null; // Only unknown classes
+
+		if (literalStart < value.length()) parts.add(literal(value.substring(literalStart)));
+		return String.join(" + ", parts);
+	}
+
+	/**
+	 * @param owner The internal name of the owner of the method
+	 * @param name The name of the method
+	 * @param descriptor The descriptor of the method
+	 * @return A map call for the name of the given method or null if it does not get remapped
+	 */
+	public String formatMethod(String owner, String name, String descriptor) {
+		if (!owner.startsWith(minecraftPrefix) || "<init>".equals(name) || "<clinit>".equals(name))
+			return null; // (Static) constructors do not get remapped, obviously.
+
+		return cached(MappingType.METHOD, methodCalls, new MemberKey(owner, name, descriptor), key -> resolveMethod(key.owner(), key.name(), key.descriptor()));
+	}
+
+	private String resolveMethod(String owner, String name, String descriptor) {
+		MemberEntry mapping = mappings.getMethod(Namespace.NAMED, owner, name, descriptor);
+		if (mapping == null) {
+			// Likely inherited, in which case the mapping belongs to the class the method was originally declared in.
+			// Owners that can't be found are likely outside source, unlikely that those will require remapping.
+			long start = System.nanoTime();
+			String declaringClass = hierarchy.getDeclaringClass(owner, name, descriptor);
+			mapping = declaringClass == null || declaringClass.equals(owner) ? null : mappings.getMethod(Namespace.NAMED, declaringClass, name, descriptor);
+			metrics.hierarchyLookup(System.nanoTime() - start, mapping != null);
+		}
+
+		return mapping == null ? null : formatMapCall(mapping.getName(Namespace.INTERMEDIARY), name, mapping.getName(Namespace.MOJ));
+	}
+
+	/**
+	 * @param owner The internal name of the owner of the field
+	 * @param name The name of the field
+	 * @return A map call for the name of the given field or null if it does not get remapped
+	 */
+	public String formatField(String owner, String name) {
+		return owner.startsWith(minecraftPrefix) ? cached(MappingType.FIELD, fieldCalls, new MemberKey(owner, name, null), key -> resolveField(key.owner(), key.name())) : null;
+	}
+
+	private String resolveField(String owner, String name) {
+		MemberEntry mapping = mappings.getField(Namespace.NAMED, owner, name);
+		return mapping == null ? null : formatMapCall(mapping.getName(Namespace.INTERMEDIARY), name, mapping.getName(Namespace.MOJ));
+	}
+
+	private String cached(MappingType type, Map<MemberKey, String> cache, MemberKey key, Function<MemberKey, String> resolver) {
+		String mapCall = cache.get(key);
+		boolean cached = mapCall != null;
+		if (cached) cacheHits.increment();
+		else {
+			cacheMisses.increment();
+			// Not computeIfAbsent so slow resolutions don't block other keys, two threads missing the same key at once just both resolve it.
+			mapCall = resolver.apply(key);
+			if (mapCall == null) mapCall = notRemappable;
+			cache.putIfAbsent(key, mapCall);
+		}
+
+		metrics.lookup(type, cached, !mapCall.isEmpty());
+		return mapCall.isEmpty() ? null : mapCall;
+	}
+
+	/**
+	 * @param name The internal name of the inner class
+	 * @param outerName The internal name of the class the inner class is a member of
+	 * @param innerName The simple name of the inner class
+	 * @return A map call for the simple name of the inner class or null if it does not get remapped
+	 */
+	public String formatInnerClassName(String name, String outerName, String innerName) {
+		if (innerName == null || outerName == null || !name.startsWith(minecraftPrefix) || !outerName.startsWith(minecraftPrefix)) return null;
+
+		ClassEntry mapping = mappings.getClass(Namespace.NAMED, name);
+		metrics.lookup(MappingType.CLASS, false, mapping != null);
+		if (mapping == null) return null;
+
+		String intermediary = mapping.getName(Namespace.INTERMEDIARY);
+		String mojName = mapping.getName(Namespace.MOJ);
+		return formatMapCall(intermediary.substring(intermediary.lastIndexOf('$') + 1), innerName, mojName.substring(mojName.lastIndexOf('$') + 1));
+	}
+
+	private String formatClass(String className, boolean prefixed, boolean suffixed) {
+		ClassEntry mapping = mappings.getClass(Namespace.NAMED, className);
+		metrics.lookup(MappingType.CLASS, false, mapping != null);
+		if (mapping == null) return null;
+
+		String prefix = prefixed ? "L" : "";
+		String suffix = suffixed ? ";" : "";
+		return formatMapCall(prefix + mapping.getName(Namespace.INTERMEDIARY) + suffix, prefix + mapping.getName(Namespace.NAMED) + suffix,
+				prefix + mapping.getName(Namespace.MOJ) + suffix);
+	}
+
+	private String formatMapCall(String intermediary, String yarn, String moj) {
+		StringBuilder sb = new StringBuilder(mapMethod).append('(');
+		Printer.appendString(sb, intermediary);
+		sb.append(", ");
+		Printer.appendString(sb, yarn);
+		sb.append(", ");
+		Printer.appendString(sb, moj);
+		return sb.append(')').toString();
+	}
+
+	private static String literal(String s) {
+		// Strings containing a single character used in concatenation are turned into a character for memory efficiency
+		if (s.length() == 1 && s.charAt(0) >= 0x20 && s.charAt(0) < 0x7f && s.charAt(0) != '\'' && s.charAt(0) != '\\')
+			return "'" + s + "'";
+
+		StringBuilder sb = new StringBuilder();
+		Printer.appendString(sb, s);
+		return sb.toString();
+	}
+
+	private static boolean isClassNameChar(char ch) {
+		return ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch >= '0' && ch <= '9' || ch == '_' || ch == '$' || ch == '/';
+	}
+
+	private record MemberKey(String owner, String name, String descriptor) {}
+}
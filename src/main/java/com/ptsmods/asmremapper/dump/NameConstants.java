@@ -0,0 +1,49 @@
+package com.ptsmods.asmremapper.dump;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the distinct map call expressions of a single dump so each is only evaluated once, when the dump first uses it.
+ * <p>
+ * Every expression becomes a constant in one of a set of nested holder classes, e.g. {@code Names0.name12}. Holder classes are only
+ * initialized once one of their constants is first used, and each one only holds a limited amount of constants,
+ * so their static initializers stay well below the size limit of Java methods.
+ */
+class NameConstants {
+	private static final int constantsPerHolder = 500;
+	private final Map<String, String> references = new LinkedHashMap<>();
+
+	/**
+	 * @param expression The Java expression evaluating to a mapped name, e.g. a map call
+	 * @return A reference to the constant holding the value of the expression
+	 */
+	String reference(String expression) {
+		return references.computeIfAbsent(expression, e -> {
+			int index = references.size();
+			return "Names" + index / constantsPerHolder + ".name" + index;
+		});
+	}
+
+	/**
+	 * @return The source of the holder classes of all constants referenced so far
+	 */
+	String getHolders() {
+		StringBuilder sb = new StringBuilder();
+		int index = 0;
+		for (Map.Entry<String, String> entry : references.entrySet()) {
+			if (index % constantsPerHolder == 0) {
+				if (index > 0) sb.append("}\n");
+				sb.append("\nprivate static class Names").append(index / constantsPerHolder).append(" {\n");
+			}
+
+			String reference = entry.getValue();
+			sb.append("private static final String ").append(reference, reference.indexOf('.') + 1, reference.length())
+					.append(" = ").append(entry.getKey()).append(";\n");
+			index++;
+		}
+		if (index > 0) sb.append("}\n");
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,341 @@
+package com.ptsmods.asmremapper.dump;
+
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.util.ASMifier;
+import org.objectweb.asm.util.Printer;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * ASMifier that emits map calls for Minecraft classes, methods and fields while the dump is being generated,
+ * rather than having them patched into its output afterwards.
+ * <p>
+ * When given an output, the text generated for every field, method and record component is written to it as soon as the next one starts,
+ * so only a single member of a class is ever held in memory rather than the dump of the whole class.
+ * <p>
+ * When given a split budget, every field, method and record component gets its own helper method, e.g. {@code dumpMethod3(ClassWriter)},
+ * which {@code dump()} calls. Methods with more statements than the budget are split further into a chain of helpers that share their labels,
+ * so dumps of huge classes stay below the 64KB bytecode limit of methods and are small enough to be JIT-compiled.
+ * As class-level statements come before the members but are only complete once the whole class has been visited, {@code dump()} comes last.
+ * <p>
+ * When hoisting names, every distinct map call (or string containing them) becomes a constant that is only evaluated once,
+ * rather than calling the map method again for every single reference. See {@link NameConstants}.
+ */
+public class RemappingASMifier extends ASMifier {
+	private static final String dumpDeclaration = "public static byte[] dump () throws Exception {\n\n";
+	private final MapCallFormatter formatter;
+	private final String pckg;
+	private final String mapUtil;
+	private final PrintWriter output;
+	private final int splitBudget;
+	private final String helperName; // Only set for methods that are being split.
+	private final NameConstants names; // Shared by all ASMifiers of a class, null if names are not hoisted.
+	private final List<Object> dumpText = new ArrayList<>();
+	private int classStatementsStart;
+	private int fields, methods, recordComponents;
+	private String nextHelperName;
+
+	/**
+	 * Constructs a new RemappingASMifier for a class.
+	 * @param formatter The formatter used to resolve Minecraft references
+	 * @param pckg The package the dump should be put into
+	 * @param mapUtil Full name of the class containing the map method
+	 */
+	public RemappingASMifier(MapCallFormatter formatter, String pckg, String mapUtil) {
+		this(formatter, pckg, mapUtil, null);
+	}
+
+	/**
+	 * Constructs a new RemappingASMifier for a class that streams its text to the given output.
+	 * The output must be the same writer the {@link org.objectweb.asm.util.TraceClassVisitor} prints to, which prints whatever is left at the end.
+	 * @param formatter The formatter used to resolve Minecraft references
+	 * @param pckg The package the dump should be put into
+	 * @param mapUtil Full name of the class containing the map method
+	 * @param output The writer to stream the generated text to, or null to keep all text until the class has been visited
+	 */
+	public RemappingASMifier(MapCallFormatter formatter, String pckg, String mapUtil, PrintWriter output) {
+		this(formatter, pckg, mapUtil, output, 0, false);
+	}
+
+	/**
+	 * Constructs a new RemappingASMifier for a class that streams its text to the given output, possibly splitting it into helper methods
+	 * and hoisting names into constants.
+	 * @param formatter The formatter used to resolve Minecraft references
+	 * @param pckg The package the dump should be put into
+	 * @param mapUtil Full name of the class containing the map method
+	 * @param output The writer to stream the generated text to, or null to keep all text until the class has been visited
+	 * @param splitBudget The maximum amount of statements per helper method, or 0 to put everything in a single dump method
+	 * @param hoistNames Whether to evaluate every distinct mapped name only once, rather than calling the map method for every reference
+	 */
+	public RemappingASMifier(MapCallFormatter formatter, String pckg, String mapUtil, PrintWriter output, int splitBudget, boolean hoistNames) {
+		this(Opcodes.ASM9, "classWriter", 0, formatter, pckg, mapUtil, output, splitBudget, null, hoistNames ? new NameConstants() : null);
+	}
+
+	/**
+	 * Constructs a new RemappingASMifier.
+	 * @param api The ASM API version implemented by this class
+	 * @param visitorVariableName The name of the visitor variable in the produced code
+	 * @param annotationVisitorId Identifier of the annotation visitor variable in the produced code
+	 * @param formatter The formatter used to resolve Minecraft references
+	 * @param pckg The package the dump should be put into
+	 * @param mapUtil Full name of the class containing the map method
+	 */
+	protected RemappingASMifier(int api, String visitorVariableName, int annotationVisitorId, MapCallFormatter formatter, String pckg, String mapUtil) {
+		this(api, visitorVariableName, annotationVisitorId, formatter, pckg, mapUtil, null, 0, null, null);
+	}
+
+	private RemappingASMifier(int api, String visitorVariableName, int annotationVisitorId, MapCallFormatter formatter, String pckg, String mapUtil,
+							  PrintWriter output, int splitBudget, String helperName, NameConstants names) {
+		super(api, visitorVariableName, annotationVisitorId);
+		this.formatter = formatter;
+		this.pckg = pckg;
+		this.mapUtil = mapUtil;
+		this.output = output;
+		this.splitBudget = splitBudget;
+		this.helperName = helperName;
+		this.names = names;
+	}
+
+	@Override
+	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+		super.visit(version, access, name, signature, superName, interfaces);
+
+		// Replace package and add import for the map method
+		String header = String.format("package %s;\nimport static %s.%s;\n", pckg, mapUtil, formatter.getMapMethod());
+		if (text.get(0) instanceof String s && s.startsWith("package ")) text.set(0, header);
+		else text.add(0, header);
+
+		// Everything from the dump method on belongs in it.
+		classStatementsStart = text.indexOf(dumpDeclaration);
+	}
+
+	@Override
+	public ASMifier visitRecordComponent(String name, String descriptor, String signature) {
+		startMember();
+		ASMifier asmifier = super.visitRecordComponent(name, descriptor, signature);
+		if (splitBudget > 0) toHelper("dumpRecordComponent" + recordComponents++, "RecordComponentVisitor");
+		return asmifier;
+	}
+
+	@Override
+	public ASMifier visitField(int access, String name, String descriptor, String signature, Object value) {
+		startMember();
+		ASMifier asmifier = super.visitField(access, name, descriptor, signature, value);
+		if (splitBudget > 0) toHelper("dumpField" + fields++, "FieldVisitor");
+		return asmifier;
+	}
+
+	@Override
+	public ASMifier visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+		startMember();
+		if (splitBudget > 0) nextHelperName = "dumpMethod" + methods;
+		ASMifier asmifier = super.visitMethod(access, name, descriptor, signature, exceptions);
+		if (splitBudget > 0) toHelper("dumpMethod" + methods++, "MethodVisitor");
+		return asmifier;
+	}
+
+	@Override
+	public void visitMethodEnd() {
+		super.visitMethodEnd();
+		if (helperName != null) splitMethod();
+	}
+
+	@Override
+	public void visitClassEnd() {
+		startMember();
+		text.addAll(dumpText);
+		dumpText.clear();
+		super.visitClassEnd();
+
+		// Holders go right before the closing brace of the class.
+		if (names != null) text.add(text.size() - 1, names.getHolders());
+	}
+
+	@Override
+	public void visitInnerClass(String name, String outerName, String innerName, int access) {
+		super.visitInnerClass(name, outerName, innerName, access);
+
+		String innerNameCall = formatter.formatInnerClassName(name, outerName, innerName);
+		if (innerNameCall == null) return;
+
+		// The access flags can only be formatted by ASMifier itself, so we take those from the line it just generated.
+		String line = (String) text.get(text.size() - 1);
+		String accessFlags = line.substring(line.lastIndexOf(", ") + 2, line.lastIndexOf(");"));
+
+		stringBuilder.setLength(0);
+		stringBuilder.append("classWriter.visitInnerClass(");
+		appendConstant(name);
+		stringBuilder.append(", ");
+		appendConstant(outerName);
+		stringBuilder.append(", ").append(hoist(innerNameCall)).append(", ").append(accessFlags).append(");\n\n");
+		text.set(text.size() - 1, stringBuilder.toString());
+	}
+
+	@Override
+	public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+		stringBuilder.setLength(0);
+		stringBuilder.append(this.name).append(".visitFieldInsn(").append(OPCODES[opcode]).append(", ");
+		appendConstant(owner);
+		stringBuilder.append(", ");
+		appendMemberName(formatter.formatField(owner, name), name);
+		stringBuilder.append(", ");
+		appendConstant(descriptor);
+		stringBuilder.append(");\n");
+		text.add(stringBuilder.toString());
+	}
+
+	@Override
+	public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+		stringBuilder.setLength(0);
+		stringBuilder.append(this.name).append(".visitMethodInsn(").append(OPCODES[opcode]).append(", ");
+		appendConstant(owner);
+		stringBuilder.append(", ");
+		appendMemberName(formatter.formatMethod(owner, name, descriptor), name);
+		stringBuilder.append(", ");
+		appendConstant(descriptor);
+		stringBuilder.append(", ").append(isInterface).append(");\n");
+		text.add(stringBuilder.toString());
+	}
+
+	@Override
+	protected void appendConstant(Object value) {
+		if (value instanceof String s) appendString(s);
+		else if (value instanceof Type type) {
+			stringBuilder.append("Type.getType(");
+			appendString(type.getDescriptor());
+			stringBuilder.append(')');
+		} else if (value instanceof Handle handle) {
+			boolean isField = handle.getTag() <= Opcodes.H_PUTSTATIC;
+
+			stringBuilder.append("new Handle(Opcodes.").append(HANDLE_TAG[handle.getTag()]).append(", ");
+			appendConstant(handle.getOwner());
+			stringBuilder.append(", ");
+			appendMemberName(isField ? formatter.formatField(handle.getOwner(), handle.getName()) :
+					formatter.formatMethod(handle.getOwner(), handle.getName(), handle.getDesc()), handle.getName());
+			stringBuilder.append(", ");
+			appendConstant(handle.getDesc());
+			stringBuilder.append(", ").append(handle.isInterface()).append(')');
+		} else if (value instanceof ConstantDynamic constantDynamic) {
+			stringBuilder.append("new ConstantDynamic(");
+			appendConstant(constantDynamic.getName());
+			stringBuilder.append(", ");
+			appendConstant(constantDynamic.getDescriptor());
+			stringBuilder.append(", ");
+			appendConstant(constantDynamic.getBootstrapMethod());
+			stringBuilder.append(", new Object[] {");
+			for (int i = 0; i < constantDynamic.getBootstrapMethodArgumentCount(); i++) {
+				if (i > 0) stringBuilder.append(", ");
+				appendConstant(constantDynamic.getBootstrapMethodArgument(i));
+			}
+			stringBuilder.append("})");
+		} else super.appendConstant(value);
+	}
+
+	@Override
+	protected void declareLabel(Label label) {
+		if (helperName == null) {
+			super.declareLabel(label);
+			return;
+		}
+
+		// Labels of split methods are kept in an array that is passed on to every helper, as labels may be used in any of them.
+		if (labelNames == null) labelNames = new HashMap<>();
+		if (labelNames.containsKey(label)) return;
+
+		String labelName = "labels[" + labelNames.size() + "]";
+		labelNames.put(label, labelName);
+		stringBuilder.append(labelName).append(" = new Label();\n");
+	}
+
+	@Override
+	protected ASMifier createASMifier(String visitorVariableName, int annotationVisitorId) {
+		String helperName = "methodVisitor".equals(visitorVariableName) ? nextHelperName : null;
+		nextHelperName = null;
+		return new RemappingASMifier(api, visitorVariableName, annotationVisitorId, formatter, pckg, mapUtil, null, splitBudget, helperName, names);
+	}
+
+	// Called before each member and at the end of the class.
+	private void startMember() {
+		if (splitBudget > 0) {
+			// Class-level statements are moved to the dump method, which comes after all helpers.
+			List<Object> statements = text.subList(classStatementsStart, text.size());
+			dumpText.addAll(statements);
+			statements.clear();
+		}
+
+		flush();
+	}
+
+	// Turns the block of the member that was just visited into a helper method and calls it from the dump method.
+	private void toHelper(String helperName, String visitorType) {
+		// The block consists of its first statement, the text of the member and a closing brace.
+		String start = (String) text.get(text.size() - 3);
+		text.set(text.size() - 3, "\nprivate static void " + helperName + "(ClassWriter classWriter) {\nAnnotationVisitor annotationVisitor0;\n" +
+				visitorType + ' ' + start.substring("{\n".length()));
+		dumpText.add(helperName + "(classWriter);\n");
+		classStatementsStart = text.size();
+	}
+
+	// Splits the text of this method into chunks of at most the split budget, each chunk calls the next one at its end.
+	private void splitMethod() {
+		List<Object> chunked = new ArrayList<>(text.size() + text.size() / splitBudget + 1);
+		int labels = labelNames == null ? 0 : labelNames.size();
+		int statements = 0, depth = 0, chunks = 0;
+		for (Object entry : text) {
+			// Never split in the middle of a block, e.g. an annotation.
+			if (statements >= splitBudget && depth == 0 && entry instanceof String) {
+				String chunkName = helperName + '_' + ++chunks;
+				chunked.add(String.format("%s(%s, labels);\n}\n\nprivate static void %s(MethodVisitor %2$s, Label[] labels) {\nAnnotationVisitor annotationVisitor0;\n",
+						chunkName, name, chunkName));
+				statements = 0;
+			}
+
+			chunked.add(entry);
+			statements++;
+			if (entry instanceof String s) {
+				if (s.startsWith("{")) depth++;
+				else if (s.equals("}\n")) depth--;
+			}
+		}
+
+		if (labels > 0 || chunks > 0) chunked.add(0, "Label[] labels = new Label[" + labels + "];\n");
+		text.clear();
+		text.addAll(chunked);
+	}
+
+	// Writes out all text generated so far. The previous member is done once the next one starts, so its text won't change anymore.
+	private void flush() {
+		if (output == null) return;
+
+		print(output);
+		text.clear();
+		classStatementsStart = 0;
+	}
+
+	private void appendMemberName(String mapCall, String name) {
+		if (mapCall == null) appendConstant(name);
+		else stringBuilder.append(hoist(mapCall));
+	}
+
+	private void appendString(String value) {
+		if (names == null) {
+			formatter.appendString(stringBuilder, value);
+			return;
+		}
+
+		String expression = formatter.formatString(value);
+		if (expression == null) Printer.appendString(stringBuilder, value);
+		else stringBuilder.append(names.reference(expression));
+	}
+
+	private String hoist(String expression) {
+		return names == null ? expression : names.reference(expression);
+	}
+}
@@ -0,0 +1,215 @@
+package com.ptsmods.asmremapper.hierarchy;
+
+import com.ptsmods.asmremapper.util.StringPool;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Index of the class hierarchy read straight from class files, so no classes ever get loaded.
+ * <p>
+ * Classes are looked up in the given classpath of jars and directories first and as resources of the fallback class loader otherwise.
+ * Only the header and the member signatures of each class are read and only once a class is first needed.
+ * Both the parsed classes and the resolved declaring classes are memoized, so instances are meant to be shared for a whole run.
+ * Instances are thread-safe.
+ */
+public class ClassHierarchy implements Closeable {
+	private static final ClassInfo missing = new ClassInfo("", 0, null, List.of(), Set.of(), Set.of());
+	private final List<Path> directories = new ArrayList<>();
+	private final List<ZipFile> jars = new ArrayList<>();
+	private final ClassLoader fallback;
+	private final Map<String, ClassInfo> classes = new ConcurrentHashMap<>();
+	private final Map<MemberKey, String> declaringClasses = new ConcurrentHashMap<>();
+	private final Map<MemberKey, String> fieldClasses = new ConcurrentHashMap<>();
+	// Supertypes and methods like <init>()V or overridden methods are shared by many classes.
+	private final StringPool pool = new StringPool();
+
+	/**
+	 * Constructs a new ClassHierarchy.
+	 * @param classpath The jars and directories to look up classes in
+	 * @param fallback The class loader whose resources are searched for classes not on the classpath, may be null
+	 * @throws IOException If any of the jars could not be opened
+	 */
+	public ClassHierarchy(Collection<Path> classpath, ClassLoader fallback) throws IOException {
+		this.fallback = fallback;
+
+		try {
+			for (Path path : classpath)
+				if (Files.isDirectory(path)) directories.add(path);
+				else jars.add(new ZipFile(path.toFile()));
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets info about the class with the given name.
+	 * @param name The internal name of the class
+	 * @return Info about the class or null if it could not be found
+	 */
+	public ClassInfo getClass(String name) {
+		ClassInfo info = classes.get(name);
+		if (info == null) {
+			info = read(name);
+			classes.putIfAbsent(name, info);
+		}
+
+		return info == missing ? null : info;
+	}
+
+	/**
+	 * Finds the class the given method was originally declared in, i.e. the topmost class or interface in the hierarchy of the owner that declares it.
+	 * E.g. PlayerEntity#getUuid() is declared in the Entity class, but that class gets it from the EntityLike interface.
+	 * @param owner The internal name of the class the method is invoked on
+	 * @param name The name of the method
+	 * @param descriptor The descriptor of the method
+	 * @return The internal name of the declaring class, the owner itself if no supertype declares the method, or null if the owner could not be found
+	 */
+	public String getDeclaringClass(String owner, String name, String descriptor) {
+		MemberKey key = new MemberKey(owner, name, descriptor);
+		String declaringClass = declaringClasses.get(key);
+		if (declaringClass != null) return declaringClass.isEmpty() ? null : declaringClass;
+
+		ClassInfo info = getClass(owner);
+		if (info == null) declaringClass = "";
+		else {
+			ClassInfo declaring = findInSupertypes(info, name, descriptor);
+			// Results of supertypes are memoized too, so the rest of the walk is shared with every other subclass.
+			declaringClass = declaring == null ? owner : getDeclaringClass(declaring.name(), name, descriptor);
+		}
+
+		declaringClasses.putIfAbsent(key, declaringClass);
+		return declaringClass.isEmpty() ? null : declaringClass;
+	}
+
+	/**
+	 * Finds the class a field reference resolves to, the same way the JVM does: the owner itself, then its interfaces, then its superclass.
+	 * E.g. a subclass of Entity accessing the world field of Entity references it as its own field.
+	 * @param owner The internal name of the class the field is accessed on
+	 * @param name The name of the field
+	 * @param descriptor The descriptor of the field
+	 * @return The internal name of the declaring class, the owner itself if no class in its hierarchy declares the field,
+	 * or null if the owner could not be found
+	 */
+	public String getFieldClass(String owner, String name, String descriptor) {
+		MemberKey key = new MemberKey(owner, name, descriptor);
+		String fieldClass = fieldClasses.get(key);
+		if (fieldClass != null) return fieldClass.isEmpty() ? null : fieldClass;
+
+		ClassInfo info = getClass(owner);
+		if (info == null) fieldClass = "";
+		else {
+			ClassInfo declaring = findField(info, name, descriptor);
+			fieldClass = declaring == null ? owner : declaring.name();
+		}
+
+		fieldClasses.putIfAbsent(key, fieldClass);
+		return fieldClass.isEmpty() ? null : fieldClass;
+	}
+
+	// Interfaces are searched before the superclass, depth first.
+	private ClassInfo findInSupertypes(ClassInfo info, String name, String descriptor) {
+		for (String iface : info.interfaces()) {
+			ClassInfo found = findIn(getClass(iface), name, descriptor);
+			if (found != null) return found;
+		}
+
+		return info.superName() == null ? null : findIn(getClass(info.superName()), name, descriptor);
+	}
+
+	private ClassInfo findIn(ClassInfo info, String name, String descriptor) {
+		if (info == null) return null;
+		return info.declaresMethod(name, descriptor) ? info : findInSupertypes(info, name, descriptor);
+	}
+
+	private ClassInfo findField(ClassInfo info, String name, String descriptor) {
+		if (info == null || info.declaresField(name, descriptor)) return info;
+
+		for (String iface : info.interfaces()) {
+			ClassInfo found = findField(getClass(iface), name, descriptor);
+			if (found != null) return found;
+		}
+
+		return info.superName() == null ? null : findField(getClass(info.superName()), name, descriptor);
+	}
+
+	private ClassInfo read(String name) {
+		String fileName = name + ".class";
+		try {
+			for (Path directory : directories) {
+				Path file = directory.resolve(fileName);
+				if (Files.isRegularFile(file)) return parse(Files.readAllBytes(file));
+			}
+
+			for (ZipFile jar : jars) {
+				ZipEntry entry = jar.getEntry(fileName);
+				if (entry != null) try (InputStream in = jar.getInputStream(entry)) {
+					return parse(in.readAllBytes());
+				}
+			}
+
+			InputStream in = fallback == null ? null : fallback.getResourceAsStream(fileName);
+			if (in != null) try (in) {
+				return parse(in.readAllBytes());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read class " + name, e);
+		}
+
+		return missing;
+	}
+
+	private ClassInfo parse(byte[] classBytes) {
+		ClassReader reader = new ClassReader(classBytes);
+		Set<String> methods = new HashSet<>();
+		Set<String> fields = new HashSet<>();
+		reader.accept(new ClassVisitor(Opcodes.ASM9) {
+			@Override
+			public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+				fields.add(pool.intern(name + descriptor));
+				return null;
+			}
+
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				methods.add(pool.intern(name + descriptor));
+				return null;
+			}
+		}, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+		String[] interfaces = reader.getInterfaces();
+		for (int i = 0; i < interfaces.length; i++) interfaces[i] = pool.intern(interfaces[i]);
+
+		return new ClassInfo(reader.getClassName(), reader.getAccess(), pool.intern(reader.getSuperName()), List.of(interfaces), methods, fields);
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOException exception = null;
+		for (ZipFile jar : jars)
+			try {
+				jar.close();
+			} catch (IOException e) {
+				if (exception == null) exception = e;
+				else exception.addSuppressed(e);
+			}
+
+		if (exception != null) throw exception;
+	}
+
+	private record MemberKey(String owner, String name, String descriptor) {}
+}
@@ -0,0 +1,33 @@
+package com.ptsmods.asmremapper.hierarchy;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The parts of a class file required to resolve where methods are declared.
+ * @param name The internal name of the class
+ * @param access The access flags of the class
+ * @param superName The internal name of the superclass, null for java/lang/Object and module-info
+ * @param interfaces The internal names of the interfaces the class directly implements
+ * @param methods The methods declared by the class, as their name directly followed by their descriptor
+ * @param fields The fields declared by the class, as their name directly followed by their descriptor
+ */
+public record ClassInfo(String name, int access, String superName, List<String> interfaces, Set<String> methods, Set<String> fields) {
+	/**
+	 * @param name The name of the method
+	 * @param descriptor The descriptor of the method
+	 * @return Whether this class declares the given method
+	 */
+	public boolean declaresMethod(String name, String descriptor) {
+		return methods.contains(name + descriptor);
+	}
+
+	/**
+	 * @param name The name of the field
+	 * @param descriptor The descriptor of the field
+	 * @return Whether this class declares the given field
+	 */
+	public boolean declaresField(String name, String descriptor) {
+		return fields.contains(name + descriptor);
+	}
+}
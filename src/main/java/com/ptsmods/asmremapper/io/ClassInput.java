@@ -0,0 +1,75 @@
+package com.ptsmods.asmremapper.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A set of class files to remap, e.g. a directory or a jar.
+ * Classes are identified by their path relative to the root of the input, always separated by forward slashes.
+ * Implementations are thread-safe.
+ */
+public interface ClassInput extends Closeable {
+	/**
+	 * @return The relative paths of all classes in this input, sorted so output is the same every run
+	 */
+	List<String> getClasses();
+
+	/**
+	 * @param path The relative path of the class, as returned by {@link #getClasses()}
+	 * @return The bytes of the class file
+	 * @throws IOException If the class could not be read
+	 */
+	byte[] read(String path) throws IOException;
+
+	/**
+	 * Opens the given input, which may be a single class file, a directory of class files or a jar or zip file.
+	 * @param input The input to open
+	 * @param filter Filter applied to the relative paths of classes in directories and archives
+	 * @return The opened input
+	 * @throws IOException If the input could not be read
+	 */
+	static ClassInput open(Path input, Predicate<String> filter) throws IOException {
+		if (Files.isDirectory(input)) return new DirectoryInput(input, filter);
+		if (isArchive(input)) return new ZipInput(input, filter);
+		return new FileInput(input);
+	}
+
+	/**
+	 * @param path The path to check
+	 * @return Whether the given path refers to a jar or zip file, judging by its name
+	 */
+	static boolean isArchive(Path path) {
+		String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+		return name.endsWith(".jar") || name.endsWith(".zip");
+	}
+
+	/**
+	 * Creates a filter that matches classes in packages matching the given glob, e.g. {@code com.example.mixin.*} or {@code com.example.**}.
+	 * A single {@code *} or {@code ?} does not match across package boundaries, {@code **} does.
+	 * Slashes may be used instead of dots.
+	 * @param glob The glob to match packages against, matched against the fully qualified name of the class
+	 * @return A filter for the relative paths of classes
+	 */
+	static Predicate<String> packageGlob(String glob) {
+		StringBuilder regex = new StringBuilder();
+		glob = glob.replace('.', '/');
+		for (int i = 0; i < glob.length(); i++) {
+			char ch = glob.charAt(i);
+			if (ch == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+				regex.append(".*");
+				i++;
+			} else if (ch == '*') regex.append("[^/]*");
+			else if (ch == '?') regex.append("[^/]");
+			else regex.append(Pattern.quote(String.valueOf(ch)));
+		}
+
+		Pattern pattern = Pattern.compile(regex.toString());
+		return path -> pattern.matcher(path.endsWith(".class") ? path.substring(0, path.length() - ".class".length()) : path).matches();
+	}
+}
@@ -0,0 +1,40 @@
+package com.ptsmods.asmremapper.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// Every class file in a directory and its subdirectories.
+class DirectoryInput implements ClassInput {
+	private final Path root;
+	private final List<String> classes;
+
+	DirectoryInput(Path root, Predicate<String> filter) throws IOException {
+		this.root = root;
+
+		try (Stream<Path> fileStream = Files.walk(root)) {
+			classes = fileStream
+					.filter(path -> Files.isRegularFile(path) && path.getFileName().toString().endsWith(".class"))
+					.map(path -> root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/"))
+					.filter(filter)
+					.sorted()
+					.toList();
+		}
+	}
+
+	@Override
+	public List<String> getClasses() {
+		return classes;
+	}
+
+	@Override
+	public byte[] read(String path) throws IOException {
+		return Files.readAllBytes(root.resolve(path));
+	}
+
+	@Override
+	public void close() {}
+}
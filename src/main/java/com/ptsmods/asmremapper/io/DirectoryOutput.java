@@ -0,0 +1,62 @@
+package com.ptsmods.asmremapper.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Writes every dump to its own file in a directory, or to the output file itself if the input is a single class.
+class DirectoryOutput implements DumpOutput {
+	private final Path output;
+	private final boolean singleFile;
+
+	DirectoryOutput(Path output, boolean singleFile) {
+		this.output = output;
+		this.singleFile = singleFile;
+	}
+
+	@Override
+	public void write(String path, DumpSource source) throws IOException {
+		Path file = resolve(path);
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) Files.createDirectories(parent);
+
+		// Streamed into a temporary file first, so a class failing halfway through never leaves half a dump behind.
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+				source.writeTo(writer);
+			}
+
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	@Override
+	public void write(String path, byte[] data) throws IOException {
+		Path file = resolve(path);
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) Files.createDirectories(parent);
+
+		Files.write(file, data);
+	}
+
+	@Override
+	public boolean exists(String path) {
+		return Files.isRegularFile(resolve(path));
+	}
+
+	@Override
+	public void delete(String path) throws IOException {
+		// A single output file is always the dump of the current input, whatever it was called before.
+		if (!singleFile) Files.deleteIfExists(resolve(path));
+	}
+
+	private Path resolve(String path) {
+		return singleFile ? output : output.resolve(path);
+	}
+}
@@ -0,0 +1,110 @@
+package com.ptsmods.asmremapper.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Destination of generated dumps or remapped class files, e.g. a directory or a zip.
+ * Dumps are identified by their path relative to the root of the output, always separated by forward slashes.
+ */
+public interface DumpOutput extends Closeable {
+	/**
+	 * Writes a dump by streaming it into the output as it is being generated, rather than building all of it in memory first.
+	 * A dump that fails halfway through never ends up in the output.
+	 * @param path The relative path of the dump
+	 * @param source Writes the generated Java source
+	 * @throws IOException If the dump could not be generated or written
+	 */
+	void write(String path, DumpSource source) throws IOException;
+
+	/**
+	 * Writes a dump.
+	 * @param path The relative path of the dump
+	 * @param source The generated Java source
+	 * @throws IOException If the dump could not be written
+	 */
+	default void write(String path, String source) throws IOException {
+		write(path, writer -> writer.write(source));
+	}
+
+	/**
+	 * Generates a dump ahead of writing it, so dumps can be generated on any thread while outputs that are not concurrent still get them in order.
+	 * Concurrent outputs write the dump right away, others put it aside without holding it in memory, e.g. in a temporary file.
+	 * A dump that fails halfway through never ends up in the output.
+	 * @param path The relative path of the dump
+	 * @param source Writes the generated Java source
+	 * @return Writes the prepared dump into the output, must be called by the thread writing the output
+	 * @throws IOException If the dump could not be generated or put aside
+	 */
+	default Prepared prepare(String path, DumpSource source) throws IOException {
+		write(path, source);
+		return () -> {};
+	}
+
+	/**
+	 * Writes a binary file, e.g. a remapped class.
+	 * @param path The relative path of the file
+	 * @param data The contents of the file
+	 * @throws IOException If the file could not be written
+	 */
+	void write(String path, byte[] data) throws IOException;
+
+	/**
+	 * @return Whether dumps may be written from multiple threads at once and in any order,
+	 * false if every dump has to be written by a single thread in the order of the input
+	 */
+	default boolean isConcurrent() {
+		return true;
+	}
+
+	/**
+	 * Checks whether a dump written by an earlier run still exists, in which case it does not have to be written again if its class did not change.
+	 * @param path The relative path of the dump
+	 * @return Whether the dump exists, always false for outputs that get rewritten entirely every run
+	 */
+	default boolean exists(String path) {
+		return false;
+	}
+
+	/**
+	 * Deletes a dump written by an earlier run, e.g. because its class no longer exists.
+	 * @param path The relative path of the dump
+	 * @throws IOException If the dump could not be deleted
+	 */
+	default void delete(String path) throws IOException {}
+
+	/**
+	 * Opens the given output, which is a zip when its name ends with .zip or .jar and a directory or single file otherwise.
+	 * @param output The output to open
+	 * @param singleFile Whether the input is a single class, in which case a non-zip output is the dump file itself
+	 * @return The opened output
+	 * @throws IOException If the output could not be opened
+	 */
+	static DumpOutput open(Path output, boolean singleFile) throws IOException {
+		if (ClassInput.isArchive(output)) return new ZipOutput(output);
+		return new DirectoryOutput(output, singleFile);
+	}
+
+	/**
+	 * Discards everything written so far by outputs that are written as a whole, e.g. zips, so a failed run leaves the previous output alone.
+	 * Dumps that are written one by one are kept. The output still has to be closed afterwards.
+	 */
+	default void abort() {}
+
+	@Override
+	default void close() throws IOException {}
+
+	/**
+	 * A dump that has been generated, but not necessarily written yet.
+	 * Prepared dumps that never get written are discarded once the output is closed.
+	 */
+	@FunctionalInterface
+	interface Prepared {
+		/**
+		 * Writes the dump into the output.
+		 * @throws IOException If the dump could not be written
+		 */
+		void write() throws IOException;
+	}
+}
@@ -0,0 +1,17 @@
+package com.ptsmods.asmremapper.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Generates the source of a dump straight into the output it is written to.
+ */
+@FunctionalInterface
+public interface DumpSource {
+	/**
+	 * Writes the generated source.
+	 * @param writer The buffered writer to write the source to, it must not be closed as it is managed by the output
+	 * @throws IOException If the source could not be generated or written
+	 */
+	void writeTo(Writer writer) throws IOException;
+}
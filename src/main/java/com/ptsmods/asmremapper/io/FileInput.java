@@ -0,0 +1,30 @@
+package com.ptsmods.asmremapper.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// A single class file, its path is just its file name.
+class FileInput implements ClassInput {
+	private final Path file;
+	private final List<String> classes;
+
+	FileInput(Path file) {
+		this.file = file;
+		classes = List.of(file.getFileName().toString());
+	}
+
+	@Override
+	public List<String> getClasses() {
+		return classes;
+	}
+
+	@Override
+	public byte[] read(String path) throws IOException {
+		return Files.readAllBytes(file);
+	}
+
+	@Override
+	public void close() {}
+}
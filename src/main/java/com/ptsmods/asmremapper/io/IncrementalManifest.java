@@ -0,0 +1,169 @@
+package com.ptsmods.asmremapper.io;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Records the hash of every class that was remapped in a run, so the next run can skip classes that did not change.
+ * The path of the output of every class is recorded too, so it's known without loading the mappings the path may depend on.
+ * <p>
+ * Each manifest has an identity, which should be a checksum of everything besides the class itself that affects its dump
+ * (e.g. the mappings and the options used). A manifest with a different identity is treated as empty, so everything gets remapped again.
+ * Instances are thread-safe.
+ */
+public class IncrementalManifest {
+	private static final int magic = 0x41534D49; // ASMI
+	private static final int version = 2;
+	private final long identity;
+	private final Map<String, Entry> entries;
+
+	/**
+	 * Constructs a new empty manifest.
+	 * @param identity The identity of the manifest
+	 */
+	public IncrementalManifest(long identity) {
+		this(identity, new ConcurrentHashMap<>());
+	}
+
+	private IncrementalManifest(long identity, Map<String, Entry> entries) {
+		this.identity = identity;
+		this.entries = entries;
+	}
+
+	/**
+	 * Loads the manifest stored in the given file.
+	 * @param file The file to load from
+	 * @param identity The identity the manifest should have
+	 * @return The loaded manifest or an empty one if the file does not exist, is not a valid manifest or has a different identity
+	 * @throws IOException If the file could not be read
+	 */
+	public static IncrementalManifest load(Path file, long identity) throws IOException {
+		IncrementalManifest manifest = load(file);
+		return manifest != null && manifest.identity == identity ? manifest : new IncrementalManifest(identity);
+	}
+
+	/**
+	 * Loads the manifest stored in the given file, whatever its identity.
+	 * Its classes can't be trusted to be up to date, but it still tells which outputs the previous run left behind.
+	 * @param file The file to load from
+	 * @return The loaded manifest or null if the file does not exist or is not a valid manifest
+	 * @throws IOException If the file could not be read
+	 */
+	public static IncrementalManifest load(Path file) throws IOException {
+		if (!Files.isRegularFile(file)) return null;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != magic || in.readInt() != version) return null;
+
+			long identity = in.readLong();
+			int size = in.readInt();
+			Map<String, Entry> entries = new ConcurrentHashMap<>(size);
+			for (int i = 0; i < size; i++)
+				entries.put(in.readUTF(), new Entry(in.readLong(), in.readUTF()));
+
+			return new IncrementalManifest(identity, entries);
+		} catch (EOFException e) {
+			return null; // Truncated, just start over.
+		}
+	}
+
+	/**
+	 * @return The identity of this manifest
+	 */
+	public long getIdentity() {
+		return identity;
+	}
+
+	/**
+	 * Calculates the hash of a class file as stored in manifests.
+	 * @param classBytes The bytes of the class file
+	 * @return The hash of the class file
+	 */
+	public static long hash(byte[] classBytes) {
+		CRC32C crc = new CRC32C();
+		crc.update(classBytes);
+		// The length makes collisions between different versions of the same class a lot less likely than the CRC alone.
+		return (long) classBytes.length << 32 | crc.getValue();
+	}
+
+	/**
+	 * @param path The relative path of the class
+	 * @param hash The hash of the class
+	 * @return Whether this manifest has the given class with the given hash
+	 */
+	public boolean isUpToDate(String path, long hash) {
+		Entry recorded = entries.get(path);
+		return recorded != null && recorded.hash() == hash;
+	}
+
+	/**
+	 * @param path The relative path of the class
+	 * @return The relative path of the output of the given class, or null if this manifest does not have it
+	 */
+	public String getOutput(String path) {
+		Entry recorded = entries.get(path);
+		return recorded == null ? null : recorded.output();
+	}
+
+	/**
+	 * Records the hash of the given class and where its output was written to.
+	 * @param path The relative path of the class
+	 * @param hash The hash of the class
+	 * @param output The relative path of its dump or remapped class
+	 */
+	public void put(String path, long hash, String output) {
+		entries.put(path, new Entry(hash, output));
+	}
+
+	/**
+	 * Removes the given class, e.g. because it was deleted.
+	 * @param path The relative path of the class
+	 */
+	public void remove(String path) {
+		entries.remove(path);
+	}
+
+	/**
+	 * @return The relative paths of all classes in this manifest
+	 */
+	public Set<String> getClasses() {
+		return Collections.unmodifiableSet(entries.keySet());
+	}
+
+	/**
+	 * Saves this manifest to the given file.
+	 * The file is first written to a temporary file and then moved, so a crash never leaves a half-written manifest behind.
+	 * @param file The file to save to
+	 * @throws IOException If anything goes wrong while writing
+	 */
+	public void save(Path file) throws IOException {
+		Files.createDirectories(file.toAbsolutePath().getParent());
+
+		Map<String, Entry> entries = new HashMap<>(this.entries); // Snapshot so size and entries always agree.
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+			out.writeInt(magic);
+			out.writeInt(version);
+			out.writeLong(identity);
+
+			out.writeInt(entries.size());
+			for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+				out.writeUTF(entry.getKey());
+				out.writeLong(entry.getValue().hash());
+				out.writeUTF(entry.getValue().output());
+			}
+		}
+
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private record Entry(long hash, String output) {}
+}
@@ -0,0 +1,48 @@
+package com.ptsmods.asmremapper.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// Every class file in a jar or zip, read straight into memory without extracting anything.
+class ZipInput implements ClassInput {
+	private final ZipFile zip;
+	private final List<String> classes;
+
+	ZipInput(Path file, Predicate<String> filter) throws IOException {
+		zip = new ZipFile(file.toFile());
+		classes = zip.stream()
+				.filter(entry -> !entry.isDirectory() && entry.getName().endsWith(".class"))
+				.map(ZipEntry::getName)
+				// Multi-release and module descriptors are not classes we want dumps of.
+				.filter(name -> !name.startsWith("META-INF/") && !name.endsWith("module-info.class"))
+				.filter(filter)
+				.sorted()
+				.toList();
+	}
+
+	@Override
+	public List<String> getClasses() {
+		return classes;
+	}
+
+	@Override
+	public byte[] read(String path) throws IOException {
+		ZipEntry entry = zip.getEntry(path);
+		if (entry == null) throw new IOException("Archive does not contain " + path);
+
+		// ZipFile is safe to read from multiple threads at once.
+		try (InputStream in = zip.getInputStream(entry)) {
+			return in.readAllBytes();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		zip.close();
+	}
+}
@@ -0,0 +1,96 @@
+package com.ptsmods.asmremapper.io;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Writes all dumps into a single zip. The zip is written to a temporary file first, which is only moved into place once closed
+// and deleted instead if the output got aborted, so a failed run never leaves a truncated zip behind.
+// Dumps are spilled to a temporary file of their own until they are complete, so a dump that fails halfway through never becomes an entry
+// and no dump is ever held in memory as a whole. Spilling can happen on any thread, entries are copied in one at a time in the order they are written.
+class ZipOutput implements DumpOutput {
+	private final Path file;
+	private final Path tempFile;
+	private final ZipOutputStream out;
+	private final Set<Path> spills = ConcurrentHashMap.newKeySet();
+	private boolean aborted;
+
+	ZipOutput(Path file) throws IOException {
+		this.file = file;
+		Path parent = file.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+
+		tempFile = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+		out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)));
+	}
+
+	@Override
+	public void write(String path, DumpSource source) throws IOException {
+		prepare(path, source).write();
+	}
+
+	@Override
+	public Prepared prepare(String path, DumpSource source) throws IOException {
+		Path spill = Files.createTempFile(tempFile.getParent(), file.getFileName().toString(), ".tmp");
+		spills.add(spill);
+		try (Writer writer = Files.newBufferedWriter(spill, StandardCharsets.UTF_8)) {
+			source.writeTo(writer);
+		} catch (IOException | RuntimeException e) {
+			discard(spill);
+			throw e;
+		}
+
+		return () -> {
+			try {
+				synchronized (this) {
+					out.putNextEntry(new ZipEntry(path));
+					Files.copy(spill, out);
+					out.closeEntry();
+				}
+			} finally {
+				discard(spill);
+			}
+		};
+	}
+
+	@Override
+	public synchronized void write(String path, byte[] data) throws IOException {
+		out.putNextEntry(new ZipEntry(path));
+		out.write(data);
+		out.closeEntry();
+	}
+
+	@Override
+	public boolean isConcurrent() {
+		return false;
+	}
+
+	@Override
+	public synchronized void abort() {
+		aborted = true;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			out.close();
+			if (!aborted) Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempFile);
+			for (Path spill : spills) discard(spill); // Prepared, but never written
+		}
+	}
+
+	private void discard(Path spill) throws IOException {
+		spills.remove(spill);
+		Files.deleteIfExists(spill);
+	}
+}
@@ -0,0 +1,107 @@
+package com.ptsmods.asmremapper.mappings;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+
+/**
+ * Reads mapping files in chunks of whole classes, so they can be parsed on every core at once.
+ * <p>
+ * Both tiny v2 and ProGuard mappings list every class followed by its members, so a chunk that starts at a class line
+ * can be parsed without knowing anything about the chunks before it. The file is still read line by line in one pass,
+ * each chunk is handed to the common {@link ForkJoinPool} as soon as it is complete and only a few chunks are kept in flight,
+ * so no more than those chunks are ever held in memory besides the parsed results.
+ * The results are returned in the order of the file, so the parsed mappings are the same as when parsed in one go.
+ */
+final class MappingChunks {
+	private static final int chunkSize = 1 << 16; // Chars, a chunk is only ended at the first class line after this many
+	private static final int maxInFlight = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+
+	private MappingChunks() {}
+
+	/**
+	 * Reads the rest of the given reader in chunks and parses each chunk on the common pool.
+	 * @param in The reader to read the mappings from, it is not closed
+	 * @param linesRead The amount of lines already read from the reader, e.g. the header, for line numbers
+	 * @param classLine Tests whether the given line declares a class
+	 * @param parser The parser to parse each chunk with
+	 * @param <T> The type of the parsed chunks
+	 * @return The parsed chunks, in the order of the file
+	 * @throws IOException If the mappings could not be read or any of the chunks could not be parsed
+	 */
+	static <T> List<T> parse(BufferedReader in, int linesRead, Predicate<String> classLine, ChunkParser<T> parser) throws IOException {
+		List<T> results = new ArrayList<>();
+		Deque<ForkJoinTask<T>> inFlight = new ArrayDeque<>();
+		List<String> lines = new ArrayList<>();
+		int size = 0;
+		int firstLine = linesRead + 1;
+
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (size >= chunkSize && classLine.test(line)) {
+					submit(lines, firstLine, parser, inFlight, results);
+					firstLine += lines.size();
+					lines = new ArrayList<>();
+					size = 0;
+				}
+
+				lines.add(line);
+				size += line.length() + 1;
+			}
+
+			if (!lines.isEmpty()) submit(lines, firstLine, parser, inFlight, results);
+			while (!inFlight.isEmpty()) results.add(join(inFlight.poll()));
+		} finally {
+			for (ForkJoinTask<T> task : inFlight) task.cancel(false);
+		}
+
+		return results;
+	}
+
+	// Waits for the oldest chunk first if too many are in flight already, so the reader never runs far ahead of the parsers.
+	private static <T> void submit(List<String> lines, int firstLine, ChunkParser<T> parser, Deque<ForkJoinTask<T>> inFlight, List<T> results) throws IOException {
+		if (inFlight.size() >= maxInFlight) results.add(join(inFlight.poll()));
+
+		inFlight.add(ForkJoinPool.commonPool().submit(() -> {
+			try {
+				return parser.parse(lines, firstLine);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}));
+	}
+
+	private static <T> T join(ForkJoinTask<T> task) throws IOException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while parsing mappings.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+			if (e.getCause() instanceof RuntimeException re) throw re;
+			if (e.getCause() instanceof Error error) throw error;
+			throw new IOException(e.getCause());
+		}
+	}
+
+	interface ChunkParser<T> {
+		/**
+		 * @param lines The lines of the chunk, without their line terminators
+		 * @param firstLine The (1-based) number of the first line of the chunk in the whole file, for error messages
+		 * @return The parsed chunk
+		 * @throws IOException If the chunk is not valid
+		 */
+		T parse(List<String> lines, int firstLine) throws IOException;
+	}
+}
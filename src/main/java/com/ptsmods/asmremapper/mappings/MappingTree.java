@@ -0,0 +1,333 @@
+package com.ptsmods.asmremapper.mappings;
+
+import com.ptsmods.asmremapper.util.Descriptors;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Yarn and Moj mappings merged into a single tree in which every class and member knows its name in each {@link Namespace},
+ * so a name translates from any namespace to any other in a single lookup rather than hopping from Yarn to official to Moj.
+ * <p>
+ * Every namespace gets its own index, built the first time anything is looked up in it. Usually only the named namespace is ever indexed,
+ * as that is what the classes being remapped were compiled against. The tree contains every class and member in the Yarn mappings,
+ * names that are missing in the Moj mappings (e.g. of classes that are not obfuscated) fall back to their named name.
+ * <p>
+ * Like {@link Mappings#isLazy() lazy} Yarn mappings, trees made of them only merge the members of a class the first time the class is queried.
+ * Until then, such a class only keeps {@link Mappings.ClassHandle handles} on its own class in both mappings,
+ * so of Moj mappings that were loaded entirely, only the members of classes that were not merged yet stay in memory.
+ * Trees are immutable and thread-safe.
+ */
+public class MappingTree {
+	private final List<ClassEntry> classes;
+	private final Map<String, ClassEntry> officialClasses;
+	private final AtomicReferenceArray<Index> indexes = new AtomicReferenceArray<>(Namespace.values().length);
+
+	private MappingTree(List<ClassEntry> classes, Map<String, ClassEntry> officialClasses) {
+		this.classes = Collections.unmodifiableList(classes);
+		this.officialClasses = officialClasses;
+	}
+
+	/**
+	 * Merges the given mappings into a single tree.
+	 * @param yarn The Yarn mappings
+	 * @param moj The Moj mappings of the same Minecraft version
+	 * @return The merged tree
+	 */
+	public static MappingTree of(Mappings yarn, Mappings moj) {
+		Map<String, ClassEntry> officialClasses = new HashMap<>(yarn.getClassMappings().size() * 4 / 3 + 1);
+		List<ClassEntry> classes = new ArrayList<>(yarn.getClassMappings().size());
+		for (ClassMapping mapping : yarn.getClassMappings()) {
+			if (officialClasses.containsKey(mapping.official())) continue;
+
+			// Entries only hold handles on their own class, so neither mappings as a whole are kept reachable by the tree.
+			Mappings.ClassHandle mojClass = moj.getClassHandle(mapping.official());
+			String mojName = mojClass == null || !mapping.isObfuscated() ? mapping.named() : mojClass.getMapping().named();
+			ClassEntry entry = new ClassEntry(mapping.official(), mapping.intermediary(), mapping.named(), mojName, new Source(yarn.getClassHandle(mapping), mojClass));
+			officialClasses.put(mapping.official(), entry);
+			classes.add(entry);
+		}
+
+		// Mappings that were loaded entirely anyway are merged right away, so they don't have to be kept around next to the tree.
+		if (!yarn.isLazy()) for (ClassEntry entry : classes) entry.members();
+
+		return new MappingTree(classes, officialClasses);
+	}
+
+	/**
+	 * Reads Yarn and Moj mappings straight into a tree.
+	 * @param yarnJar The Yarn mappings jar
+	 * @param mojMappings The Moj mappings in the ProGuard format
+	 * @return The merged tree
+	 * @throws IOException If either of the mappings could not be read
+	 */
+	public static MappingTree read(Path yarnJar, Path mojMappings) throws IOException {
+		return of(TinyV2Reader.read(yarnJar), ProGuardReader.read(mojMappings));
+	}
+
+	/**
+	 * @return Every class in this tree
+	 */
+	public List<ClassEntry> getClasses() {
+		return classes;
+	}
+
+	/**
+	 * @param namespace The namespace of the given name
+	 * @param name The internal name of the class
+	 * @return The class with the given name or null if it is not in this tree
+	 */
+	public ClassEntry getClass(Namespace namespace, String name) {
+		IndexedClass indexed = index(namespace).classes.get(name);
+		return indexed == null ? null : indexed.entry;
+	}
+
+	/**
+	 * @param namespace The namespace of the given names and descriptor
+	 * @param owner The internal name of the owner of the method
+	 * @param name The name of the method
+	 * @param descriptor The descriptor of the method
+	 * @return The method or null if it is not in this tree
+	 */
+	public MemberEntry getMethod(Namespace namespace, String owner, String name, String descriptor) {
+		Index index = index(namespace);
+		IndexedClass indexed = index.classes.get(owner);
+		return indexed == null ? null : members(index, indexed).methods.get(name, descriptor);
+	}
+
+	/**
+	 * @param namespace The namespace of the given names
+	 * @param owner The internal name of the owner of the field
+	 * @param name The name of the field
+	 * @return The field or null if it is not in this tree
+	 */
+	public MemberEntry getField(Namespace namespace, String owner, String name) {
+		Index index = index(namespace);
+		IndexedClass indexed = index.classes.get(owner);
+		return indexed == null ? null : members(index, indexed).fields.get(name, null);
+	}
+
+	/**
+	 * @param name The internal name of a class
+	 * @param from The namespace of the given name
+	 * @param to The namespace to map to
+	 * @return The name of the class in the target namespace, or the given name if the class is not in this tree
+	 */
+	public String mapClassName(String name, Namespace from, Namespace to) {
+		ClassEntry entry = getClass(from, name);
+		return entry == null ? name : entry.getName(to);
+	}
+
+	/**
+	 * @param member A method or field in this tree
+	 * @param namespace The namespace to get the descriptor in
+	 * @return The descriptor of the member in the given namespace
+	 */
+	public String getDescriptor(MemberEntry member, Namespace namespace) {
+		return switch (namespace) {
+			case OFFICIAL -> member.officialDescriptor;
+			case NAMED -> member.namedDescriptor;
+			default -> mapDescriptor(member.officialDescriptor, Namespace.OFFICIAL, namespace);
+		};
+	}
+
+	/**
+	 * @param descriptor A field or method descriptor
+	 * @param from The namespace of the classes in the given descriptor
+	 * @param to The namespace to map to
+	 * @return The descriptor with every class in this tree mapped to the target namespace
+	 */
+	public String mapDescriptor(String descriptor, Namespace from, Namespace to) {
+		return Descriptors.mapClasses(descriptor, name -> mapClassName(name, from, to));
+	}
+
+	private Index index(Namespace namespace) {
+		Index index = indexes.get(namespace.ordinal());
+		if (index != null) return index;
+
+		synchronized (indexes) {
+			index = indexes.get(namespace.ordinal());
+			if (index == null) {
+				Map<String, IndexedClass> indexed = new HashMap<>(classes.size() * 4 / 3 + 1);
+				for (ClassEntry entry : classes) indexed.putIfAbsent(entry.getName(namespace), new IndexedClass(entry));
+
+				index = new Index(namespace, indexed, new ConcurrentHashMap<>());
+				indexes.set(namespace.ordinal(), index);
+			}
+		}
+
+		return index;
+	}
+
+	// The member tables of a class are only built when its members are first looked up.
+	private IndexedMembers members(Index index, IndexedClass indexed) {
+		IndexedMembers members = indexed.members;
+		if (members != null) return members;
+
+		synchronized (indexed) {
+			if (indexed.members != null) return indexed.members;
+
+			Namespace namespace = index.namespace;
+			ClassEntry entry = indexed.entry;
+			members = new IndexedMembers(new MemberTable<>(entry.getMethods().size()), new MemberTable<>(entry.getFields().size()));
+			for (MemberEntry method : entry.getMethods()) {
+				// Descriptors are only stored in the namespaces the mappings came with, those of other namespaces only exist in their index.
+				String descriptor = switch (namespace) {
+					case OFFICIAL -> method.officialDescriptor;
+					case NAMED -> method.namedDescriptor;
+					default -> index.descriptors.computeIfAbsent(method.officialDescriptor, desc -> Descriptors.mapClasses(desc, name -> {
+						ClassEntry owner = officialClasses.get(name);
+						return owner == null ? null : owner.getName(namespace);
+					}));
+				};
+
+				members.methods.put(method.getName(namespace), descriptor, method);
+			}
+			for (MemberEntry field : entry.getFields()) members.fields.put(field.getName(namespace), null, field);
+
+			return indexed.members = members;
+		}
+	}
+
+	/**
+	 * A class in the tree.
+	 */
+	public static final class ClassEntry {
+		private final String official, intermediary, named, moj;
+		private volatile Members members;
+		private Source source; // Null once the members are merged
+
+		private ClassEntry(String official, String intermediary, String named, String moj, Source source) {
+			this.official = official;
+			this.intermediary = intermediary;
+			this.named = named;
+			this.moj = moj;
+			this.source = source;
+		}
+
+		/**
+		 * @param namespace The namespace to get the name in
+		 * @return The internal name of this class in the given namespace
+		 */
+		public String getName(Namespace namespace) {
+			return switch (namespace) {
+				case OFFICIAL -> official;
+				case INTERMEDIARY -> intermediary;
+				case NAMED -> named;
+				case MOJ -> moj;
+			};
+		}
+
+		/**
+		 * @return The methods of this class
+		 */
+		public List<MemberEntry> getMethods() {
+			return members().methods;
+		}
+
+		/**
+		 * @return The fields of this class
+		 */
+		public List<MemberEntry> getFields() {
+			return members().fields;
+		}
+
+		private Members members() {
+			Members members = this.members;
+			if (members != null) return members;
+
+			synchronized (this) {
+				if (this.members != null) return this.members;
+
+				List<MethodMapping> yarnMethods = source.yarn.getMethodMappings();
+				List<MemberEntry> methods = new ArrayList<>(yarnMethods.size());
+				for (MethodMapping mapping : yarnMethods) {
+					MethodMapping mojMapping = source.moj == null ? null : source.moj.getMethodMapping(mapping.official(), mapping.officialSignature());
+					methods.add(new MemberEntry(this, mapping.official(), mapping.intermediary(), mapping.named(), mojMapping == null ? mapping.named() : mojMapping.named(),
+							mapping.officialSignature(), mapping.signature()));
+				}
+
+				List<FieldMapping> yarnFields = source.yarn.getFieldMappings();
+				List<MemberEntry> fields = new ArrayList<>(yarnFields.size());
+				for (FieldMapping mapping : yarnFields) {
+					FieldMapping mojMapping = source.moj == null ? null : source.moj.getFieldMapping(mapping.official());
+					fields.add(new MemberEntry(this, mapping.official(), mapping.intermediary(), mapping.named(), mojMapping == null ? mapping.named() : mojMapping.named(),
+							mapping.officialDescriptor(), mapping.descriptor()));
+				}
+
+				source = null;
+				return this.members = new Members(Collections.unmodifiableList(methods), Collections.unmodifiableList(fields));
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "ClassEntry[" + String.join(", ", official, intermediary, named, moj) + ']';
+		}
+	}
+
+	/**
+	 * A method or field in the tree.
+	 */
+	public static final class MemberEntry {
+		private final ClassEntry owner;
+		private final String official, intermediary, named, moj;
+		private final String officialDescriptor, namedDescriptor;
+
+		private MemberEntry(ClassEntry owner, String official, String intermediary, String named, String moj, String officialDescriptor, String namedDescriptor) {
+			this.owner = owner;
+			this.official = official;
+			this.intermediary = intermediary;
+			this.named = named;
+			this.moj = moj;
+			this.officialDescriptor = officialDescriptor;
+			this.namedDescriptor = namedDescriptor;
+		}
+
+		/**
+		 * @return The class declaring this member
+		 */
+		public ClassEntry getOwner() {
+			return owner;
+		}
+
+		/**
+		 * @param namespace The namespace to get the name in
+		 * @return The name of this member in the given namespace
+		 */
+		public String getName(Namespace namespace) {
+			return switch (namespace) {
+				case OFFICIAL -> official;
+				case INTERMEDIARY -> intermediary;
+				case NAMED -> named;
+				case MOJ -> moj;
+			};
+		}
+
+		@Override
+		public String toString() {
+			return "MemberEntry[" + String.join(", ", official, intermediary, named, moj) + ']';
+		}
+	}
+
+	// The Moj handle is null for classes that are not in the Moj mappings.
+	private record Source(Mappings.ClassHandle yarn, Mappings.ClassHandle moj) {}
+
+	private record Members(List<MemberEntry> methods, List<MemberEntry> fields) {}
+
+	private record Index(Namespace namespace, Map<String, IndexedClass> classes, Map<String, String> descriptors) {}
+
+	private static final class IndexedClass {
+		private final ClassEntry entry;
+		private volatile IndexedMembers members;
+
+		private IndexedClass(ClassEntry entry) {
+			this.entry = entry;
+		}
+	}
+
+	private record IndexedMembers(MemberTable<MemberEntry> methods, MemberTable<MemberEntry> fields) {}
+}
@@ -2,19 +2,24 @@ package com.ptsmods.asmremapper.mappings;
 
 import com.ptsmods.asmremapper.util.Pair;
 
-import java.util.Collections;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.IntFunction;
 
 /**
  * Object to hold class, field and method mappings
+ * <p>
+ * Mappings are either loaded entirely up front, or lazily (e.g. by {@link MappingsCache}), in which case only the classes are known up front
+ * and the members of a class are loaded the first time it is queried.
  */
 public class Mappings {
+	private static final ClassMembers noMembers = new ClassMembers(List.of(), List.of());
 	private final Type type;
-	private final Map<String, ClassMapping> classMappings;
-	private final Map<String, MethodMapping> methodMappings;
-	private final Map<String, FieldMapping> fieldMappings;
+	private final Map<String, ClassEntry> classes;
+	private final Collection<ClassMapping> classMappings;
+	private final IntFunction<ClassMembers> memberLoader;
+	private volatile Collection<MethodMapping> methodMappings;
+	private volatile Collection<FieldMapping> fieldMappings;
 
 	/**
 	 * Constructs a new Mappings object.
@@ -23,13 +28,111 @@ public class Mappings {
 	 * @param methodMappings The parsed method mappings
 	 * @param fieldMappings The parsed field mappings
 	 */
-	public Mappings(Type type, Map<String, ClassMapping> classMappings, Map<Pair<ClassMapping, String>, MethodMapping> methodMappings, Map<Pair<ClassMapping, String>, FieldMapping> fieldMappings) {
+	public Mappings(Type type, Collection<ClassMapping> classMappings, Collection<MethodMapping> methodMappings, Collection<FieldMapping> fieldMappings) {
+		this.type = type;
+		this.classMappings = Collections.unmodifiableCollection(classMappings);
+		this.methodMappings = Collections.unmodifiableCollection(methodMappings);
+		this.fieldMappings = Collections.unmodifiableCollection(fieldMappings);
+		memberLoader = null;
+
+		// Group members per class first, so every member table can be allocated at its final size.
+		Map<String, ClassMembers> members = new HashMap<>(classMappings.size() * 4 / 3 + 1);
+		for (MethodMapping mapping : methodMappings) members(members, mapping.owner()).methods().add(mapping);
+		for (FieldMapping mapping : fieldMappings) members(members, mapping.owner()).fields().add(mapping);
+
+		classes = new HashMap<>(classMappings.size() * 4 / 3 + 1);
+		for (ClassMapping mapping : classMappings) classes.put(type.formatKey(mapping), new ClassEntry(mapping, -1));
+		// Members whose owner was not passed as a class mapping still need to be findable.
+		for (MethodMapping mapping : methodMappings) classes.computeIfAbsent(type.formatKey(mapping.owner()), k -> new ClassEntry(mapping.owner(), -1));
+		for (FieldMapping mapping : fieldMappings) classes.computeIfAbsent(type.formatKey(mapping.owner()), k -> new ClassEntry(mapping.owner(), -1));
+
+		for (Map.Entry<String, ClassEntry> entry : classes.entrySet())
+			entry.getValue().members = index(type, members.getOrDefault(entry.getKey(), noMembers));
+	}
+
+	/**
+	 * Constructs a new Mappings object that loads the members of a class the first time it is queried.
+	 * @param type The {@link Type} of these Mappings
+	 * @param classMappings The class mappings, including the owner of every member
+	 * @param memberLoader Function loading the members of the class at the given index in the class mappings, called at most once per class
+	 *                     and possibly from multiple threads at once
+	 */
+	public Mappings(Type type, List<ClassMapping> classMappings, IntFunction<ClassMembers> memberLoader) {
 		this.type = type;
-		this.classMappings = Collections.unmodifiableMap(classMappings);
-		this.methodMappings = Collections.unmodifiableMap(methodMappings.entrySet().stream()
-				.collect(Collectors.toMap(entry -> type.formatKey(entry.getKey().left()) + ';' + entry.getKey().right(), Map.Entry::getValue)));
-		this.fieldMappings = Collections.unmodifiableMap(fieldMappings.entrySet().stream()
-				.collect(Collectors.toMap(entry -> type.formatKey(entry.getKey().left()) + ';' + entry.getKey().right(), Map.Entry::getValue)));
+		this.classMappings = Collections.unmodifiableCollection(classMappings);
+		this.memberLoader = memberLoader;
+
+		classes = new HashMap<>(classMappings.size() * 4 / 3 + 1);
+		for (int i = 0; i < classMappings.size(); i++) classes.put(type.formatKey(classMappings.get(i)), new ClassEntry(classMappings.get(i), i));
+	}
+
+	/**
+	 * Constructs a new Mappings object.
+	 * Kept for compatibility, the keys of the passed maps are not used.
+	 * @param type The {@link Type} of these Mappings
+	 * @param classMappings The parsed class mappings
+	 * @param methodMappings The parsed method mappings
+	 * @param fieldMappings The parsed field mappings
+	 */
+	public Mappings(Type type, Map<String, ClassMapping> classMappings, Map<Pair<ClassMapping, String>, MethodMapping> methodMappings, Map<Pair<ClassMapping, String>, FieldMapping> fieldMappings) {
+		this(type, classMappings.values(), methodMappings.values(), fieldMappings.values());
+	}
+
+	/**
+	 * @return The {@link Type} of these Mappings
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return All class mappings held by these Mappings
+	 */
+	public Collection<ClassMapping> getClassMappings() {
+		return classMappings;
+	}
+
+	/**
+	 * @return Whether the members of these Mappings are only loaded once their class is queried
+	 */
+	public boolean isLazy() {
+		return memberLoader != null;
+	}
+
+	/**
+	 * Loads every member first if these Mappings are lazy.
+	 * @return All method mappings held by these Mappings
+	 */
+	public Collection<MethodMapping> getMethodMappings() {
+		if (methodMappings == null) loadAll();
+		return methodMappings;
+	}
+
+	/**
+	 * Loads every member first if these Mappings are lazy.
+	 * @return All field mappings held by these Mappings
+	 */
+	public Collection<FieldMapping> getFieldMappings() {
+		if (fieldMappings == null) loadAll();
+		return fieldMappings;
+	}
+
+	/**
+	 * @param owner The owner of the methods
+	 * @return The method mappings of the given class, empty if it is not in these Mappings
+	 */
+	public List<MethodMapping> getMethodMappings(ClassMapping owner) {
+		ClassEntry entry = owner == null ? null : classes.get(type.formatKey(owner));
+		return entry == null ? List.of() : members(entry).list.methods();
+	}
+
+	/**
+	 * @param owner The owner of the fields
+	 * @return The field mappings of the given class, empty if it is not in these Mappings
+	 */
+	public List<FieldMapping> getFieldMappings(ClassMapping owner) {
+		ClassEntry entry = owner == null ? null : classes.get(type.formatKey(owner));
+		return entry == null ? List.of() : members(entry).list.fields();
 	}
 
 	/**
@@ -37,7 +140,28 @@ public class Mappings {
 	 * @return The {@link ClassMapping} requested
 	 */
 	public ClassMapping getClassMapping(String name) {
-		return classMappings.get(name);
+		ClassEntry entry = classes.get(name);
+		return entry == null ? null : entry.mapping;
+	}
+
+	/**
+	 * Gets a handle on a single class, which keeps its members reachable, but not these Mappings as a whole.
+	 * The members of lazy Mappings are still only loaded once first queried through the handle.
+	 * @param name The name of the class
+	 * @return A handle on the requested class or null if it is not in these Mappings
+	 */
+	public ClassHandle getClassHandle(String name) {
+		ClassEntry entry = classes.get(name);
+		return entry == null ? null : new ClassHandle(entry, type, memberLoader);
+	}
+
+	/**
+	 * @param owner The class
+	 * @return A handle on the given class or null if it is not in these Mappings
+	 * @see #getClassHandle(String)
+	 */
+	public ClassHandle getClassHandle(ClassMapping owner) {
+		return owner == null ? null : getClassHandle(type.formatKey(owner));
 	}
 
 	/**
@@ -47,7 +171,7 @@ public class Mappings {
 	 * @return The {@link MethodMapping} requested
 	 */
 	public MethodMapping getMethodMapping(ClassMapping owner, String name, String signature) {
-		return methodMappings.get(type.formatKey(owner) + ';' + name + signature);
+		return owner == null ? null : getMethodMapping(type.formatKey(owner), name, signature);
 	}
 
 	/**
@@ -57,7 +181,8 @@ public class Mappings {
 	 * @return The {@link MethodMapping} requested
 	 */
 	public MethodMapping getMethodMapping(String owner, String name, String signature) {
-		return getMethodMapping(getClassMapping(owner), name, signature);
+		ClassEntry entry = classes.get(owner);
+		return entry == null ? null : members(entry).methods.get(name, signature);
 	}
 
 	/**
@@ -66,7 +191,7 @@ public class Mappings {
 	 * @return The {@link FieldMapping} requested
 	 */
 	public FieldMapping getFieldMapping(ClassMapping owner, String name) {
-		return fieldMappings.get(type.formatKey(owner) + ';' + name);
+		return owner == null ? null : getFieldMapping(type.formatKey(owner), name);
 	}
 
 	/**
@@ -75,7 +200,8 @@ public class Mappings {
 	 * @return The {@link FieldMapping} requested
 	 */
 	public FieldMapping getFieldMapping(String owner, String name) {
-		return getFieldMapping(getClassMapping(owner), name);
+		ClassEntry entry = classes.get(owner);
+		return entry == null ? null : members(entry).fields.get(name, null);
 	}
 
 	/**
@@ -85,7 +211,7 @@ public class Mappings {
 	 * @return Whether the given owner has a method of the given name and signature.
 	 */
 	public boolean hasMethod(ClassMapping owner, String name, String signature) {
-		return methodMappings.containsKey(type.formatKey(owner) + ';' + name + signature);
+		return getMethodMapping(owner, name, signature) != null;
 	}
 
 	/**
@@ -95,9 +221,133 @@ public class Mappings {
 	 * @return Whether the given owner has a method of the given name and signature.
 	 */
 	public boolean hasMethod(String owner, String name, String signature) {
-		return hasMethod(getClassMapping(owner), name, signature);
+		return getMethodMapping(owner, name, signature) != null;
+	}
+
+	private ClassMembers members(Map<String, ClassMembers> members, ClassMapping owner) {
+		return members.computeIfAbsent(type.formatKey(owner), k -> new ClassMembers(new ArrayList<>(), new ArrayList<>()));
+	}
+
+	private Members members(ClassEntry entry) {
+		return members(entry, type, memberLoader);
 	}
 
+	// Static, so handles don't need these Mappings to load the members of their class.
+	private static Members members(ClassEntry entry, Type type, IntFunction<ClassMembers> memberLoader) {
+		Members members = entry.members;
+		if (members != null) return members;
+
+		synchronized (entry) {
+			if (entry.members == null) entry.members = index(type, memberLoader.apply(entry.index));
+			return entry.members;
+		}
+	}
+
+	private static Members index(Type type, ClassMembers list) {
+		Members members = new Members(list, new MemberTable<>(list.methods().size()), new MemberTable<>(list.fields().size()));
+		for (MethodMapping mapping : list.methods()) members.methods.put(type.formatMethodName(mapping), type.formatMethodDescriptor(mapping), mapping);
+		for (FieldMapping mapping : list.fields()) members.fields.put(type.formatFieldName(mapping), null, mapping);
+		return members;
+	}
+
+	private synchronized void loadAll() {
+		if (methodMappings != null) return;
+
+		List<MethodMapping> methods = new ArrayList<>();
+		List<FieldMapping> fields = new ArrayList<>();
+		for (ClassEntry entry : classes.values()) {
+			ClassMembers members = members(entry).list;
+			methods.addAll(members.methods());
+			fields.addAll(members.fields());
+		}
+
+		// Fields first, methods being set means both are.
+		fieldMappings = Collections.unmodifiableCollection(fields);
+		methodMappings = Collections.unmodifiableCollection(methods);
+	}
+
+	/**
+	 * The members of a single class, as loaded by lazy Mappings.
+	 * @param methods The method mappings of the class
+	 * @param fields The field mappings of the class
+	 */
+	public record ClassMembers(List<MethodMapping> methods, List<FieldMapping> fields) {}
+
+	/**
+	 * A single class of some Mappings, see {@link #getClassHandle(String)}.
+	 */
+	public static final class ClassHandle {
+		private final ClassEntry entry;
+		private final Type type;
+		private final IntFunction<ClassMembers> memberLoader;
+
+		private ClassHandle(ClassEntry entry, Type type, IntFunction<ClassMembers> memberLoader) {
+			this.entry = entry;
+			this.type = type;
+			this.memberLoader = memberLoader;
+		}
+
+		/**
+		 * @return The mapping of this class
+		 */
+		public ClassMapping getMapping() {
+			return entry.mapping;
+		}
+
+		/**
+		 * @return The method mappings of this class
+		 */
+		public List<MethodMapping> getMethodMappings() {
+			return members(entry, type, memberLoader).list.methods();
+		}
+
+		/**
+		 * @return The field mappings of this class
+		 */
+		public List<FieldMapping> getFieldMappings() {
+			return members(entry, type, memberLoader).list.fields();
+		}
+
+		/**
+		 * @param name The name of the method
+		 * @param signature The signature of the method
+		 * @return The {@link MethodMapping} requested
+		 */
+		public MethodMapping getMethodMapping(String name, String signature) {
+			return members(entry, type, memberLoader).methods.get(name, signature);
+		}
+
+		/**
+		 * @param name The name of the field
+		 * @return The {@link FieldMapping} requested
+		 */
+		public FieldMapping getFieldMapping(String name) {
+			return members(entry, type, memberLoader).fields.get(name, null);
+		}
+	}
+
+	/**
+	 * A class and its members, every member lookup only needs one of these and a probe in its tables.
+	 * The members of lazy Mappings are null until the class is first queried.
+	 */
+	private static final class ClassEntry {
+		private final ClassMapping mapping;
+		private final int index;
+		private volatile Members members;
+
+		private ClassEntry(ClassMapping mapping, int index) {
+			this.mapping = mapping;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * @param list The members of the class
+	 * @param methods The methods of the class, keyed by name and signature
+	 * @param fields The fields of the class, keyed by name
+	 */
+	private record Members(ClassMembers list, MemberTable<MethodMapping> methods, MemberTable<FieldMapping> fields) {}
+
 	/**
 	 * Enum indicating what type a Mappings object is.
 	 */
@@ -105,16 +355,23 @@ public class Mappings {
 		/**
 		 * Yarn mappings, keys are named.
 		 */
-		YARN(ClassMapping::named),
+		YARN(ClassMapping::named, MethodMapping::named, MethodMapping::signature, FieldMapping::named),
 		/**
 		 * Moj mappings, keys are official
 		 */
-		MOJ(ClassMapping::official);
+		MOJ(ClassMapping::official, MethodMapping::official, MethodMapping::officialSignature, FieldMapping::official);
 
 		private final Function<ClassMapping, String> keyFormatter;
+		private final Function<MethodMapping, String> methodNameFormatter;
+		private final Function<MethodMapping, String> methodDescriptorFormatter;
+		private final Function<FieldMapping, String> fieldNameFormatter;
 
-		Type(Function<ClassMapping, String> keyFormatter) {
+		Type(Function<ClassMapping, String> keyFormatter, Function<MethodMapping, String> methodNameFormatter, Function<MethodMapping, String> methodDescriptorFormatter,
+				Function<FieldMapping, String> fieldNameFormatter) {
 			this.keyFormatter = keyFormatter;
+			this.methodNameFormatter = methodNameFormatter;
+			this.methodDescriptorFormatter = methodDescriptorFormatter;
+			this.fieldNameFormatter = fieldNameFormatter;
 		}
 
 		/**
@@ -125,5 +382,29 @@ public class Mappings {
 		public String formatKey(ClassMapping classMapping) {
 			return keyFormatter.apply(classMapping);
 		}
+
+		/**
+		 * @param methodMapping The mapping to format
+		 * @return The name a method is looked up by
+		 */
+		public String formatMethodName(MethodMapping methodMapping) {
+			return methodNameFormatter.apply(methodMapping);
+		}
+
+		/**
+		 * @param methodMapping The mapping to format
+		 * @return The signature a method is looked up by
+		 */
+		public String formatMethodDescriptor(MethodMapping methodMapping) {
+			return methodDescriptorFormatter.apply(methodMapping);
+		}
+
+		/**
+		 * @param fieldMapping The mapping to format
+		 * @return The name a field is looked up by
+		 */
+		public String formatFieldName(FieldMapping fieldMapping) {
+			return fieldNameFormatter.apply(fieldMapping);
+		}
 	}
 }
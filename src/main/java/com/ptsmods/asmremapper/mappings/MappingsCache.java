@@ -0,0 +1,303 @@
+package com.ptsmods.asmremapper.mappings;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes the binary cache format of {@link Mappings}.
+ * <p>
+ * A cache file consists of a header (magic, format version, checksum of the source the mappings were parsed from and the {@link Mappings.Type}),
+ * followed by a string table holding every name and descriptor once, the class records and a block of method and field records per class.
+ * Records only hold indices into the string table, the string table starts with the offset of every string
+ * and every class record holds the offset of its member block.
+ * <p>
+ * Reading a cache only reads the class records, the strings and member blocks are read straight from the mapped file
+ * the first time they're needed, so looking up a handful of members only touches a small part of the file.
+ */
+public class MappingsCache {
+	private static final int magic = 0x41534D52; // ASMR
+	private static final int version = 2;
+	private static final int headerSize = 17; // Magic, version, checksum and type
+
+	/**
+	 * Writes the given mappings to the given file.
+	 * The file is first written to a temporary file and then moved, so a crash never leaves a half-written cache behind.
+	 * @param mappings The mappings to write
+	 * @param checksum The checksum of the source the mappings were parsed from
+	 * @param file The file to write to
+	 * @throws IOException If anything goes wrong while writing
+	 */
+	public static void write(Mappings mappings, long checksum, Path file) throws IOException {
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		Map<ClassMapping, Integer> classes = new HashMap<>();
+		List<Mappings.ClassMembers> members = new ArrayList<>();
+		for (ClassMapping mapping : mappings.getClassMappings()) index(classes, members, mapping);
+
+		for (MethodMapping mapping : mappings.getMethodMappings())
+			members.get(index(classes, members, mapping.owner())).methods().add(mapping); // Owners should always be known, but just in case.
+		for (FieldMapping mapping : mappings.getFieldMappings())
+			members.get(index(classes, members, mapping.owner())).fields().add(mapping);
+
+		ClassMapping[] classArray = new ClassMapping[classes.size()];
+		classes.forEach((mapping, index) -> classArray[index] = mapping);
+		for (int i = 0; i < classArray.length; i++) {
+			intern(strings, classArray[i].official(), classArray[i].intermediary(), classArray[i].named());
+			for (MethodMapping mapping : members.get(i).methods())
+				intern(strings, mapping.signature(), mapping.officialSignature(), mapping.official(), mapping.intermediary(), mapping.named());
+			for (FieldMapping mapping : members.get(i).fields())
+				intern(strings, mapping.descriptor(), mapping.officialDescriptor(), mapping.official(), mapping.intermediary(), mapping.named());
+		}
+
+		// Lengths are stored as unsigned shorts, same as in class files, so no name or descriptor in a valid class file is too long.
+		List<byte[]> stringBytes = new ArrayList<>(strings.size());
+		for (String s : strings.keySet()) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			if (bytes.length > 0xFFFF) throw new IOException("Cannot cache mappings with a name or descriptor of " + bytes.length + " bytes: " + s.substring(0, 100) + "...");
+			stringBytes.add(bytes);
+		}
+
+		Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+			out.writeInt(magic);
+			out.writeInt(version);
+			out.writeLong(checksum);
+			out.writeByte(mappings.getType().ordinal());
+
+			out.writeInt(stringBytes.size());
+			int offset = out.size() + stringBytes.size() * 4;
+			for (byte[] bytes : stringBytes) {
+				out.writeInt(offset);
+				offset += 2 + bytes.length;
+			}
+			for (byte[] bytes : stringBytes) {
+				out.writeShort(bytes.length);
+				out.write(bytes);
+			}
+
+			out.writeInt(classArray.length);
+			offset = out.size() + classArray.length * 16;
+			for (int i = 0; i < classArray.length; i++) {
+				writeIndices(out, strings, classArray[i].official(), classArray[i].intermediary(), classArray[i].named());
+				out.writeInt(offset);
+				offset += 8 + (members.get(i).methods().size() + members.get(i).fields().size()) * 20;
+			}
+
+			for (Mappings.ClassMembers classMembers : members) {
+				out.writeInt(classMembers.methods().size());
+				for (MethodMapping mapping : classMembers.methods())
+					writeIndices(out, strings, mapping.signature(), mapping.officialSignature(), mapping.official(), mapping.intermediary(), mapping.named());
+
+				out.writeInt(classMembers.fields().size());
+				for (FieldMapping mapping : classMembers.fields())
+					writeIndices(out, strings, mapping.descriptor(), mapping.officialDescriptor(), mapping.official(), mapping.intermediary(), mapping.named());
+			}
+		}
+
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Reads mappings from the given cache file.
+	 * The returned mappings are {@link Mappings#isLazy() lazy}, the members of a class are read from the file the first time the class is queried.
+	 * @param file The file to read from
+	 * @param checksum The checksum of the source the mappings should have been parsed from
+	 * @return The read mappings or null if the file does not exist, was written by a different version of the format
+	 * or was parsed from a different source
+	 * @throws IOException If anything goes wrong while reading
+	 */
+	public static Mappings read(Path file, long checksum) throws IOException {
+		if (!Files.isRegularFile(file)) return null;
+
+		Mappings.Type type;
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// The header is checked before mapping the file, as a mapped file can't be replaced on Windows until the mapping is collected,
+			// so mapping outdated caches would keep them from being rewritten.
+			ByteBuffer header = ByteBuffer.allocate(headerSize);
+			while (header.hasRemaining() && channel.read(header) != -1);
+			header.flip();
+			if (header.remaining() < headerSize || header.getInt() != magic || header.getInt() != version || header.getLong() != checksum) return null;
+
+			int typeOrdinal = header.get();
+			if (typeOrdinal < 0 || typeOrdinal >= Mappings.Type.values().length) return null;
+			type = Mappings.Type.values()[typeOrdinal];
+
+			// The mapping stays valid after the channel is closed.
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		// Members are only read once first needed, by which time a truncated or corrupt file can no longer be rebuilt.
+		// So the whole file is checked in one pass up front, without decoding anything: the strings, class records and member blocks
+		// have to follow each other exactly and every string index has to lie within the string table.
+		if (buffer.limit() < headerSize + 4) return null;
+		int stringCount = buffer.getInt(headerSize);
+		if (stringCount < 0 || headerSize + 4 + stringCount * 4L > buffer.limit()) return null;
+
+		StringTable strings = new StringTable(buffer, headerSize);
+		int stringsEnd = strings.end();
+		if (stringsEnd == -1 || stringsEnd > buffer.limit() - 4) return null;
+		buffer.position(stringsEnd);
+
+		int classCount = buffer.getInt();
+		if (classCount < 0 || classCount * 16L > buffer.remaining()) return null;
+
+		ClassMapping[] classes = new ClassMapping[classCount];
+		int[] memberOffsets = new int[classes.length];
+		for (int i = 0; i < classes.length; i++) {
+			int official = buffer.getInt(), intermediary = buffer.getInt(), named = buffer.getInt();
+			if (!strings.isIndex(official) || !strings.isIndex(intermediary) || !strings.isIndex(named)) return null;
+
+			classes[i] = new ClassMapping(strings.get(official), strings.get(intermediary), strings.get(named));
+			memberOffsets[i] = buffer.getInt();
+		}
+		if (!membersFit(buffer, memberOffsets, strings)) return null;
+
+		return new Mappings(type, Arrays.asList(classes), index -> {
+			ClassMapping owner = classes[index];
+			int offset = memberOffsets[index];
+
+			MethodMapping[] methods = new MethodMapping[buffer.getInt(offset)];
+			offset += 4;
+			for (int i = 0; i < methods.length; i++, offset += 20)
+				methods[i] = new MethodMapping(owner, strings.at(offset), strings.at(offset + 4), strings.at(offset + 8), strings.at(offset + 12), strings.at(offset + 16));
+
+			FieldMapping[] fields = new FieldMapping[buffer.getInt(offset)];
+			offset += 4;
+			for (int i = 0; i < fields.length; i++, offset += 20)
+				fields[i] = new FieldMapping(owner, strings.at(offset), strings.at(offset + 4), strings.at(offset + 8), strings.at(offset + 12), strings.at(offset + 16));
+
+			return new Mappings.ClassMembers(Arrays.asList(methods), Arrays.asList(fields));
+		});
+	}
+
+	/**
+	 * Calculates the checksum of a file, e.g. the mappings jar a cache was made from.
+	 * @param file The file to calculate the checksum of
+	 * @return The CRC32 checksum of the file's contents
+	 * @throws IOException If the file could not be read
+	 */
+	public static long checksum(Path file) throws IOException {
+		CRC32 crc = new CRC32();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+
+		return crc.getValue();
+	}
+
+	/**
+	 * Calculates the checksum of a string, e.g. the version of the Minecraft release Moj mappings belong to.
+	 * @param s The string to calculate the checksum of
+	 * @return The CRC32 checksum of the string's UTF-8 bytes
+	 */
+	public static long checksum(String s) {
+		CRC32 crc = new CRC32();
+		crc.update(s.getBytes(StandardCharsets.UTF_8));
+		return crc.getValue();
+	}
+
+	// Checks that the member blocks follow each other right after the class records, that the last one ends right where the file does
+	// and that every string index in them lies within the string table.
+	private static boolean membersFit(MappedByteBuffer buffer, int[] memberOffsets, StringTable strings) {
+		long position = buffer.position();
+		for (int offset : memberOffsets) {
+			if (offset != position) return false;
+
+			for (int records = 0; records < 2; records++) { // Methods, then fields
+				if (position > buffer.limit() - 4) return false;
+				int count = buffer.getInt((int) position);
+				position += 4;
+				if (count < 0 || position + count * 20L > buffer.limit()) return false;
+
+				for (long end = position + count * 20L; position < end; position += 4)
+					if (!strings.isIndex(buffer.getInt((int) position))) return false;
+			}
+		}
+
+		return position == buffer.limit();
+	}
+
+	private static void intern(Map<String, Integer> strings, String... values) {
+		for (String value : values)
+			if (value != null) strings.putIfAbsent(value, strings.size());
+	}
+
+	private static void writeIndices(DataOutputStream out, Map<String, Integer> strings, String... values) throws IOException {
+		for (String value : values) out.writeInt(value == null ? -1 : strings.get(value));
+	}
+
+	private static int index(Map<ClassMapping, Integer> classes, List<Mappings.ClassMembers> members, ClassMapping mapping) {
+		Integer index = classes.get(mapping);
+		if (index == null) {
+			index = classes.size();
+			classes.put(mapping, index);
+			members.add(new Mappings.ClassMembers(new ArrayList<>(), new ArrayList<>()));
+		}
+
+		return index;
+	}
+
+	/**
+	 * The string table of a mapped cache file, strings are only decoded when they're first needed.
+	 * Only uses absolute reads, so the buffer's position does not matter and it can be read from multiple threads at once.
+	 */
+	private static class StringTable {
+		private final MappedByteBuffer buffer;
+		private final int offsets;
+		private final String[] strings;
+
+		private StringTable(MappedByteBuffer buffer, int position) {
+			this.buffer = buffer;
+			offsets = position + 4;
+			strings = new String[buffer.getInt(position)];
+		}
+
+		// Checks that every string directly follows the previous one, starting right after the offsets.
+		// Returns the position right after the last string, or -1 if the strings do not lie within the file.
+		private int end() {
+			long position = offsets + strings.length * 4L;
+			for (int i = 0; i < strings.length; i++) {
+				if (position > buffer.limit() - 2 || buffer.getInt(offsets + i * 4) != position) return -1;
+				position += 2 + Short.toUnsignedInt(buffer.getShort((int) position));
+			}
+
+			return position > buffer.limit() ? -1 : (int) position;
+		}
+
+		// Whether the given index can be passed to get(), -1 stands for null.
+		private boolean isIndex(int index) {
+			return index >= -1 && index < strings.length;
+		}
+
+		// Reads the index of a string at the given position in the file.
+		private String at(int position) {
+			return get(buffer.getInt(position));
+		}
+
+		private String get(int index) {
+			if (index == -1) return null;
+
+			// Racy, but Strings are immutable, so at worst a string is decoded twice.
+			String s = strings[index];
+			if (s == null) {
+				int offset = buffer.getInt(offsets + index * 4);
+				byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort(offset))];
+				buffer.get(offset + 2, bytes);
+				strings[index] = s = new String(bytes, StandardCharsets.UTF_8);
+			}
+
+			return s;
+		}
+	}
+}
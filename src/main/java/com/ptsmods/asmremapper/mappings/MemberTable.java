@@ -0,0 +1,78 @@
+package com.ptsmods.asmremapper.mappings;
+
+/**
+ * Open addressing hash table keyed by a name and a descriptor,
+ * so members can be looked up without concatenating the two into a new String.
+ * @param <T> The type of the values
+ */
+class MemberTable<T> {
+	private String[] names;
+	private String[] descriptors;
+	private Object[] values;
+	private int size;
+
+	MemberTable(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(2, expectedSize * 2 - 1)) << 1;
+		names = new String[capacity];
+		descriptors = new String[capacity];
+		values = new Object[capacity];
+	}
+
+	/**
+	 * Puts a value in this table, replacing the value previously stored for the given key, if any.
+	 * @param name The name of the member
+	 * @param descriptor The descriptor of the member, may be null
+	 * @param value The value to store
+	 */
+	void put(String name, String descriptor, T value) {
+		if ((size + 1) * 2 > names.length) resize();
+
+		int index = indexOf(names, descriptors, name, descriptor);
+		if (names[index] == null) size++;
+
+		names[index] = name;
+		descriptors[index] = descriptor;
+		values[index] = value;
+	}
+
+	/**
+	 * @param name The name of the member
+	 * @param descriptor The descriptor of the member, may be null
+	 * @return The value stored for the given key or null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	T get(String name, String descriptor) {
+		return (T) values[indexOf(names, descriptors, name, descriptor)];
+	}
+
+	private void resize() {
+		String[] oldNames = names;
+		String[] oldDescriptors = descriptors;
+		Object[] oldValues = values;
+
+		names = new String[oldNames.length * 2];
+		descriptors = new String[oldNames.length * 2];
+		values = new Object[oldNames.length * 2];
+
+		for (int i = 0; i < oldNames.length; i++) {
+			if (oldNames[i] == null) continue;
+
+			int index = indexOf(names, descriptors, oldNames[i], oldDescriptors[i]);
+			names[index] = oldNames[i];
+			descriptors[index] = oldDescriptors[i];
+			values[index] = oldValues[i];
+		}
+	}
+
+	// Returns the index holding the given key or the empty index it should be put at.
+	private static int indexOf(String[] names, String[] descriptors, String name, String descriptor) {
+		int mask = names.length - 1;
+		int hash = name.hashCode() * 31 + (descriptor == null ? 0 : descriptor.hashCode());
+		int index = (hash ^ hash >>> 16) & mask;
+
+		while (names[index] != null && !(names[index].equals(name) && (descriptor == null ? descriptors[index] == null : descriptor.equals(descriptors[index]))))
+			index = (index + 1) & mask;
+
+		return index;
+	}
+}
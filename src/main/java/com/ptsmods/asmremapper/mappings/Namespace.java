@@ -0,0 +1,34 @@
+package com.ptsmods.asmremapper.mappings;
+
+import java.util.Locale;
+
+/**
+ * The namespaces Minecraft names can be in.
+ */
+public enum Namespace {
+	/**
+	 * The obfuscated names Minecraft is shipped with
+	 */
+	OFFICIAL,
+	/**
+	 * Fabric's intermediary names, stable across Minecraft versions and used at runtime by Fabric
+	 */
+	INTERMEDIARY,
+	/**
+	 * Yarn's human-readable names, used at development time by Fabric
+	 */
+	NAMED,
+	/**
+	 * Mojang's own names, used at runtime by Forge and Paper
+	 */
+	MOJ;
+
+	/**
+	 * @param name The name of the namespace, case-insensitive
+	 * @return The namespace with the given name
+	 * @throws IllegalArgumentException If there is no namespace with the given name
+	 */
+	public static Namespace of(String name) {
+		return valueOf(name.toUpperCase(Locale.ROOT));
+	}
+}
@@ -0,0 +1,159 @@
+package com.ptsmods.asmremapper.mappings;
+
+import com.ptsmods.asmremapper.util.Descriptors;
+import com.ptsmods.asmremapper.util.StringPool;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parser for Moj mappings in the ProGuard format, as used for the client mappings of each Minecraft release.
+ * <p>
+ * The file is read in chunks of whole classes that are parsed in parallel (see {@link MappingChunks}).
+ * Lines are tokenized by hand and Java type names are converted to descriptors with a single StringBuilder per chunk.
+ * Names and descriptors are pooled, as most of them (e.g. the official name {@code a}) repeat throughout the file.
+ * Descriptors are translated from named to official once every chunk has been parsed,
+ * as members may refer to classes that are declared further down the file.
+ */
+public class ProGuardReader {
+	private static final String arrow = " -> ";
+
+	/**
+	 * Reads the ProGuard mappings in the given file.
+	 * @param file The file containing the mappings
+	 * @return The parsed mappings
+	 * @throws IOException If the file could not be read or does not contain valid ProGuard mappings
+	 */
+	public static Mappings read(Path file) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return read(reader);
+		}
+	}
+
+	/**
+	 * Reads ProGuard mappings.
+	 * @param reader The reader to read the mappings from, it is not closed
+	 * @return The parsed mappings
+	 * @throws IOException If the mappings could not be read or are not valid ProGuard mappings
+	 */
+	public static Mappings read(Reader reader) throws IOException {
+		BufferedReader in = reader instanceof BufferedReader br ? br : new BufferedReader(reader, 1 << 16);
+		StringPool pool = new StringPool();
+		// Class lines are the only ones that are not indented, apart from comments.
+		List<Chunk> chunks = MappingChunks.parse(in, 0, line -> !line.isEmpty() && line.charAt(0) != '#' && !Character.isWhitespace(line.charAt(0)),
+				(lines, firstLine) -> parseChunk(lines, firstLine, pool));
+
+		Map<String, ClassMapping> nClasses = new HashMap<>();
+		List<ClassMapping> classes = new ArrayList<>();
+		for (Chunk chunk : chunks) {
+			classes.addAll(chunk.classes);
+			for (ClassMapping mapping : chunk.classes) nClasses.put(mapping.named(), mapping);
+		}
+
+		// Translate all descriptors to official in one go now that all classes are known, again per chunk in parallel.
+		Map<String, String> officialDescs = new ConcurrentHashMap<>();
+		List<Members> translated = chunks.parallelStream().map(chunk -> {
+			Members members = new Members(new ArrayList<>(), new ArrayList<>());
+			for (PendingMember member : chunk.members) {
+				String officialDesc = officialDescs.computeIfAbsent(member.namedDesc, desc -> pool.intern(Descriptors.mapClasses(desc, name -> {
+					ClassMapping mapping = nClasses.get(name);
+					return mapping == null ? null : mapping.official();
+				})));
+
+				if (member.type == MappingType.METHOD)
+					members.methods.add(new MethodMapping(member.owner, member.namedDesc, officialDesc, member.official, null, member.named));
+				else members.fields.add(new FieldMapping(member.owner, member.namedDesc, officialDesc, member.official, null, member.named));
+			}
+
+			return members;
+		}).toList();
+
+		List<MethodMapping> methods = new ArrayList<>();
+		List<FieldMapping> fields = new ArrayList<>();
+		for (Members members : translated) {
+			methods.addAll(members.methods);
+			fields.addAll(members.fields);
+		}
+
+		return new Mappings(Mappings.Type.MOJ, classes, methods, fields);
+	}
+
+	private static Chunk parseChunk(List<String> lines, int firstLine, StringPool pool) throws IOException {
+		Chunk chunk = new Chunk(new ArrayList<>(), new ArrayList<>());
+		StringBuilder sb = new StringBuilder();
+		ClassMapping currentClass = null;
+
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i);
+			int lineNumber = firstLine + i;
+			int start = 0;
+			while (start < line.length() && Character.isWhitespace(line.charAt(start))) start++;
+			if (start == line.length() || line.charAt(start) == '#') continue;
+
+			int arrowIndex = line.indexOf(arrow, start);
+			if (arrowIndex == -1) throw new IOException("Invalid ProGuard mapping at line " + lineNumber + ": " + line);
+
+			int end = line.length();
+			while (Character.isWhitespace(line.charAt(end - 1))) end--;
+
+			if (start == 0) {
+				// Class line, e.g. 'net.minecraft.world.entity.Entity -> bfj:'
+				if (line.charAt(end - 1) == ':') end--;
+
+				currentClass = new ClassMapping(line.substring(arrowIndex + arrow.length(), end), null, line.substring(0, arrowIndex).replace('.', '/'));
+				chunk.classes.add(currentClass);
+				continue;
+			}
+
+			if (currentClass == null) throw new IOException("Found a member before any class was declared at line " + lineNumber);
+
+			String official = line.substring(arrowIndex + arrow.length(), end);
+			// Methods may be prefixed with line numbers, e.g. '12:34:void tick() -> a'. Interface methods don't contain these numbers.
+			if (Character.isDigit(line.charAt(start))) start = line.indexOf(':', line.indexOf(':', start) + 1) + 1;
+
+			int typeEnd = line.indexOf(' ', start);
+			int paramsStart = line.indexOf('(', typeEnd);
+			sb.setLength(0);
+
+			if (paramsStart == -1 || paramsStart > arrowIndex) {
+				// Field line, e.g. 'int id -> c'
+				Descriptors.appendJavaType(sb, line, start, typeEnd);
+				chunk.members.add(new PendingMember(MappingType.FIELD, currentClass, pool.intern(sb.toString()), pool.intern(official),
+						pool.intern(line.substring(typeEnd + 1, arrowIndex))));
+				continue;
+			}
+
+			int paramsEnd = line.indexOf(')', paramsStart);
+			sb.append('(');
+			for (int paramStart = paramsStart + 1; paramStart < paramsEnd; ) {
+				int paramEnd = line.indexOf(',', paramStart);
+				if (paramEnd == -1 || paramEnd > paramsEnd) paramEnd = paramsEnd;
+
+				Descriptors.appendJavaType(sb, line, paramStart, paramEnd);
+				paramStart = paramEnd + 1;
+			}
+			sb.append(')');
+			Descriptors.appendJavaType(sb, line, start, typeEnd);
+
+			chunk.members.add(new PendingMember(MappingType.METHOD, currentClass, pool.intern(sb.toString()), pool.intern(official),
+					pool.intern(line.substring(typeEnd + 1, paramsStart))));
+		}
+
+		return chunk;
+	}
+
+	private record PendingMember(MappingType type, ClassMapping owner, String namedDesc, String official, String named) {}
+
+	private record Chunk(List<ClassMapping> classes, List<PendingMember> members) {}
+
+	private record Members(List<MethodMapping> methods, List<FieldMapping> fields) {}
+}
@@ -0,0 +1,166 @@
+package com.ptsmods.asmremapper.mappings;
+
+import com.ptsmods.asmremapper.util.Descriptors;
+import com.ptsmods.asmremapper.util.StringPool;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Parser for Yarn mappings in the tiny v2 format.
+ * <p>
+ * The file is read in chunks of whole classes that are parsed in parallel (see {@link MappingChunks}).
+ * Lines are tokenized by hand, parameters and comments are skipped without being tokenized at all
+ * and member descriptors are only translated from official to named once every chunk has been parsed,
+ * as members may refer to classes that are declared further down the file.
+ * Descriptors and names that tend to repeat are pooled, intermediary names are unique anyway.
+ */
+public class TinyV2Reader {
+	private static final String mappingsEntry = "mappings/mappings.tiny";
+
+	/**
+	 * Reads the tiny v2 mappings inside a Yarn mappings jar.
+	 * @param mappingsJar The mappings jar
+	 * @return The parsed mappings
+	 * @throws IOException If the jar could not be read or does not contain tiny mappings
+	 */
+	public static Mappings read(Path mappingsJar) throws IOException {
+		try (ZipFile zip = new ZipFile(mappingsJar.toFile())) {
+			ZipEntry entry = zip.getEntry(mappingsEntry);
+			if (entry == null) throw new IOException("Mappings jar " + mappingsJar + " does not contain " + mappingsEntry);
+
+			try (Reader reader = new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8)) {
+				return read(reader);
+			}
+		}
+	}
+
+	/**
+	 * Reads tiny v2 mappings containing the official, intermediary and (optionally) named namespaces.
+	 * @param reader The reader to read the mappings from, it is not closed
+	 * @return The parsed mappings
+	 * @throws IOException If the mappings could not be read or are not valid tiny v2 mappings
+	 */
+	public static Mappings read(Reader reader) throws IOException {
+		BufferedReader in = reader instanceof BufferedReader br ? br : new BufferedReader(reader, 1 << 16);
+
+		String header = in.readLine();
+		String[] tokens = new String[8];
+		int headerCount = header == null ? 0 : split(header, 0, tokens);
+		if (headerCount < 5 || !"tiny".equals(tokens[0]) || !"2".equals(tokens[1]))
+			throw new IOException("Mappings are not in the tiny v2 format.");
+
+		List<String> namespaces = List.of(Arrays.copyOfRange(tokens, 3, headerCount));
+		int official = namespaces.indexOf("official");
+		int intermediary = namespaces.indexOf("intermediary");
+		int named = namespaces.contains("named") ? namespaces.indexOf("named") : intermediary; // No mapping yet
+		if (official == -1 || intermediary == -1) throw new IOException("Mappings must contain the official and intermediary namespaces.");
+
+		StringPool pool = new StringPool();
+		List<Chunk> chunks = MappingChunks.parse(in, 1, line -> line.startsWith("c\t"), (lines, firstLine) -> parseChunk(lines, official, intermediary, named, pool));
+
+		Map<String, ClassMapping> oClasses = new HashMap<>();
+		List<ClassMapping> classes = new ArrayList<>();
+		for (Chunk chunk : chunks) {
+			classes.addAll(chunk.classes);
+			for (ClassMapping mapping : chunk.classes) oClasses.put(mapping.official(), mapping);
+		}
+
+		// Translate all descriptors in one go now that all classes are known, again per chunk in parallel.
+		// Many members share their descriptor, so each distinct one only gets translated (and stored) once.
+		Map<String, String> namedDescs = new ConcurrentHashMap<>();
+		List<Members> translated = chunks.parallelStream().map(chunk -> {
+			Members members = new Members(new ArrayList<>(), new ArrayList<>());
+			for (PendingMember member : chunk.members) {
+				String officialDesc = member.officialDesc;
+				String namedDesc = namedDescs.computeIfAbsent(officialDesc, desc -> pool.intern(Descriptors.mapClasses(desc, name -> {
+					ClassMapping mapping = oClasses.get(name);
+					return mapping == null ? null : mapping.named();
+				})));
+
+				if (member.type == MappingType.METHOD)
+					members.methods.add(new MethodMapping(member.owner, namedDesc, officialDesc, member.official, member.intermediary, member.named));
+				else members.fields.add(new FieldMapping(member.owner, namedDesc, officialDesc, member.official, member.intermediary, member.named));
+			}
+
+			return members;
+		}).toList();
+
+		List<MethodMapping> methods = new ArrayList<>();
+		List<FieldMapping> fields = new ArrayList<>();
+		for (Members members : translated) {
+			methods.addAll(members.methods);
+			fields.addAll(members.fields);
+		}
+
+		return new Mappings(Mappings.Type.YARN, classes, methods, fields);
+	}
+
+	private static Chunk parseChunk(List<String> lines, int official, int intermediary, int named, StringPool pool) throws IOException {
+		Chunk chunk = new Chunk(new ArrayList<>(), new ArrayList<>());
+		String[] tokens = new String[8];
+		ClassMapping lastClass = null;
+
+		for (String line : lines) {
+			int depth = 0;
+			while (depth < line.length() && line.charAt(depth) == '\t') depth++;
+
+			// Parameters, local variables, comments and header properties are not required for remapping dumps.
+			if (depth > 1 || line.length() < depth + 2 || line.charAt(depth + 1) != '\t') continue;
+
+			MappingType type = switch (line.charAt(depth)) {
+				case 'c' -> depth == 0 ? MappingType.CLASS : null; // Indented 'c' lines are comments
+				case 'm' -> depth == 1 ? MappingType.METHOD : null;
+				case 'f' -> depth == 1 ? MappingType.FIELD : null;
+				default -> null;
+			};
+			if (type == null) continue;
+
+			int count = split(line, depth + 2, tokens);
+			if (type == MappingType.CLASS) {
+				lastClass = new ClassMapping(name(tokens, count, official, official), name(tokens, count, intermediary, official),
+						name(tokens, count, named, intermediary));
+				chunk.classes.add(lastClass);
+			} else if (lastClass != null) {
+				// Member lines have their descriptor before the names.
+				chunk.members.add(new PendingMember(type, lastClass, pool.intern(tokens[0]), pool.intern(name(tokens, count, official + 1, official + 1)),
+						name(tokens, count, intermediary + 1, official + 1), pool.intern(name(tokens, count, named + 1, intermediary + 1))));
+			} else throw new IOException("Found a member before any class was declared.");
+		}
+
+		return chunk;
+	}
+
+	// Splits the given line at tabs from the given index on, returns the amount of tokens.
+	private static int split(String line, int start, String[] tokens) {
+		int count = 0;
+		while (count < tokens.length) {
+			int end = line.indexOf('\t', start);
+			tokens[count++] = line.substring(start, end == -1 ? line.length() : end);
+			if (end == -1) break;
+
+			start = end + 1;
+		}
+
+		return count;
+	}
+
+	// Names that are missing or empty are not mapped in that namespace, so we use the name in the fallback namespace instead.
+	private static String name(String[] tokens, int count, int index, int fallback) {
+		return index < count && !tokens[index].isEmpty() ? tokens[index] : tokens[fallback];
+	}
+
+	private record PendingMember(MappingType type, ClassMapping owner, String officialDesc, String official, String intermediary, String named) {}
+
+	private record Chunk(List<ClassMapping> classes, List<PendingMember> members) {}
+
+	private record Members(List<MethodMapping> methods, List<FieldMapping> fields) {}
+}
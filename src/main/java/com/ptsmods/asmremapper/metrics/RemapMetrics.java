@@ -0,0 +1,116 @@
+package com.ptsmods.asmremapper.metrics;
+
+import com.ptsmods.asmremapper.mappings.MappingType;
+
+/**
+ * Listener that gets told where the time of a run goes and how references got resolved.
+ * <p>
+ * Every method does nothing by default, so implementations only have to override what they are interested in.
+ * Methods may be called from multiple threads at once and are called on hot paths, so implementations should be cheap and thread-safe.
+ * @see StatsCollector
+ */
+public interface RemapMetrics {
+	/**
+	 * Metrics that ignore everything, used when no stats are requested.
+	 */
+	RemapMetrics none = new RemapMetrics() {};
+
+	/**
+	 * Called once a phase that is not tied to a single class finished, e.g. parsing the Yarn mappings.
+	 * @param phase The phase that finished
+	 * @param nanos The time it took in nanoseconds
+	 */
+	default void phase(Phase phase, long nanos) {}
+
+	/**
+	 * Called once the dump of a class has been written.
+	 * @param path The relative path of the class
+	 * @param readNanos The time it took to read the class in nanoseconds
+	 * @param remapNanos The time it took to ASMify and remap the class in nanoseconds, includes loading the mappings for the first class
+	 *                   and writing the dump if it was streamed straight into the output
+	 * @param writeNanos The time it took to write the dump in nanoseconds, 0 if it was streamed straight into the output
+	 */
+	default void classRemapped(String path, long readNanos, long remapNanos, long writeNanos) {}
+
+	/**
+	 * Called when a class was skipped as it did not change since the last run.
+	 * @param path The relative path of the class
+	 * @param readNanos The time it took to read and hash the class in nanoseconds
+	 */
+	default void classUnchanged(String path, long readNanos) {}
+
+	/**
+	 * Called for every reference to a Minecraft class, method or field in a remapped class.
+	 * @param type The type of the referenced member
+	 * @param cached Whether the map call came from the cache of the formatter rather than being resolved
+	 * @param mapped Whether a map call was made, false if the reference could not be found in the mappings
+	 */
+	default void lookup(MappingType type, boolean cached, boolean mapped) {}
+
+	/**
+	 * Called when a method could not be found in the mappings of its owner and the class hierarchy
+	 * was searched for the class that declared it instead.
+	 * @param nanos The time the search took in nanoseconds
+	 * @param resolved Whether a supertype declaring the method was found
+	 */
+	default void hierarchyLookup(long nanos, boolean resolved) {}
+
+	/**
+	 * The phases a run consists of.
+	 */
+	enum Phase {
+		/**
+		 * Reading the Yarn mappings from the binary cache
+		 */
+		YARN_CACHE_LOAD("Yarn cache load"),
+		/**
+		 * Parsing the tiny Yarn mappings
+		 */
+		YARN_PARSE("Yarn parse"),
+		/**
+		 * Getting the Moj mappings from their source, downloading them if required
+		 */
+		MOJ_DOWNLOAD("Moj download"),
+		/**
+		 * Reading the Moj mappings from the binary cache
+		 */
+		MOJ_CACHE_LOAD("Moj cache load"),
+		/**
+		 * Parsing the ProGuard Moj mappings
+		 */
+		MOJ_PARSE("Moj parse"),
+		/**
+		 * Writing parsed mappings to the binary cache
+		 */
+		CACHE_WRITE("Cache write"),
+		/**
+		 * Reading and hashing classes, summed over all classes
+		 */
+		READ("Read"),
+		/**
+		 * ASMifying and remapping classes, summed over all classes
+		 */
+		REMAP("ASMify"),
+		/**
+		 * Searching the class hierarchy for inherited methods, summed over all lookups and part of {@link #REMAP}
+		 */
+		HIERARCHY("Hierarchy lookups"),
+		/**
+		 * Writing dumps, summed over all classes
+		 */
+		WRITE("Write");
+
+		private final String displayName;
+
+		Phase(String displayName) {
+			this.displayName = displayName;
+		}
+
+		/**
+		 * @return The name of this phase as shown in summaries
+		 */
+		public String getDisplayName() {
+			return displayName;
+		}
+	}
+}
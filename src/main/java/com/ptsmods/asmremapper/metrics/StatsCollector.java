@@ -0,0 +1,249 @@
+package com.ptsmods.asmremapper.metrics;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.ptsmods.asmremapper.mappings.MappingType;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link RemapMetrics} that adds everything up so it can be printed as a summary or written as a JSON report afterwards.
+ * Instances are thread-safe.
+ */
+public class StatsCollector implements RemapMetrics {
+	private static final MappingType[] lookupTypes = {MappingType.CLASS, MappingType.METHOD, MappingType.FIELD};
+	private final long start = System.nanoTime();
+	private final Map<Phase, Counter> phases = new EnumMap<>(Phase.class);
+	private final Map<MappingType, LookupCounter> lookups = new EnumMap<>(MappingType.class);
+	private final LongAdder hierarchyResolved = new LongAdder();
+	private final LongAdder unchanged = new LongAdder();
+	private final Queue<ClassTiming> classes = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Constructs a new StatsCollector, the wall time of the run is measured from this moment on.
+	 */
+	public StatsCollector() {
+		// Filled up front so the maps are only ever read afterwards and don't need to be concurrent.
+		for (Phase phase : Phase.values()) phases.put(phase, new Counter());
+		for (MappingType type : lookupTypes) lookups.put(type, new LookupCounter());
+	}
+
+	@Override
+	public void phase(Phase phase, long nanos) {
+		phases.get(phase).add(nanos);
+	}
+
+	@Override
+	public void classRemapped(String path, long readNanos, long remapNanos, long writeNanos) {
+		phase(Phase.READ, readNanos);
+		phase(Phase.REMAP, remapNanos);
+		phase(Phase.WRITE, writeNanos);
+		classes.add(new ClassTiming(path, readNanos, remapNanos, writeNanos));
+	}
+
+	@Override
+	public void classUnchanged(String path, long readNanos) {
+		phase(Phase.READ, readNanos);
+		unchanged.increment();
+	}
+
+	@Override
+	public void lookup(MappingType type, boolean cached, boolean mapped) {
+		LookupCounter counter = lookups.get(type);
+		counter.total.increment();
+		if (cached) counter.cached.increment();
+		if (!mapped) counter.unmapped.increment();
+	}
+
+	@Override
+	public void hierarchyLookup(long nanos, boolean resolved) {
+		phase(Phase.HIERARCHY, nanos);
+		if (resolved) hierarchyResolved.increment();
+	}
+
+	/**
+	 * @param phase The phase
+	 * @return The total time spent in the given phase so far in nanoseconds
+	 */
+	public long getNanos(Phase phase) {
+		return phases.get(phase).nanos.sum();
+	}
+
+	/**
+	 * @param phase The phase
+	 * @return The amount of times the given phase was reported so far
+	 */
+	public long getCount(Phase phase) {
+		return phases.get(phase).count.sum();
+	}
+
+	/**
+	 * @param type The type of the referenced members, either class, method or field
+	 * @return The amount of references of the given type that were looked up so far
+	 */
+	public long getLookups(MappingType type) {
+		return lookups.get(type).total.sum();
+	}
+
+	/**
+	 * @param type The type of the referenced members, either class, method or field
+	 * @return The amount of references of the given type that were answered from the cache so far
+	 */
+	public long getCacheHits(MappingType type) {
+		return lookups.get(type).cached.sum();
+	}
+
+	/**
+	 * @param type The type of the referenced members, either class, method or field
+	 * @return The amount of references of the given type that could not be mapped so far
+	 */
+	public long getUnmapped(MappingType type) {
+		return lookups.get(type).unmapped.sum();
+	}
+
+	/**
+	 * @return The amount of classes that were remapped so far
+	 */
+	public int getRemappedClasses() {
+		return classes.size();
+	}
+
+	/**
+	 * Prints a human-readable summary of everything collected so far.
+	 * @param out The stream to print to
+	 * @param slowest The amount of slowest classes to list
+	 */
+	public void printSummary(PrintStream out, int slowest) {
+		out.printf("Finished in %s, %d classes remapped, %d unchanged.\n", millis(System.nanoTime() - start), classes.size(), unchanged.sum());
+
+		out.println("Phase                        Time   Count");
+		for (Phase phase : Phase.values())
+			if (getCount(phase) > 0) out.printf("%-20s %12s %7d\n", phase.getDisplayName(), millis(getNanos(phase)), getCount(phase));
+		out.println("Per-class phases are summed over all threads.");
+
+		out.println("Lookups          Total   Cached Unmapped");
+		for (MappingType type : lookupTypes)
+			out.printf("%-10s %11d %8d %8d\n", typeName(type), getLookups(type), getCacheHits(type), getUnmapped(type));
+		out.printf("Hierarchy lookups: %d, %d resolved to a supertype.\n", getCount(Phase.HIERARCHY), hierarchyResolved.sum());
+
+		List<ClassTiming> timings = getSlowestClasses(slowest);
+		if (!timings.isEmpty()) {
+			out.println("Slowest classes:");
+			for (ClassTiming timing : timings) out.printf("%12s  %s\n", millis(timing.totalNanos()), timing.path());
+		}
+	}
+
+	/**
+	 * Writes a machine-readable JSON report of everything collected so far, containing the timings of every single class.
+	 * All times are in nanoseconds.
+	 * @param file The file to write the report to
+	 * @throws IOException If the report could not be written
+	 */
+	public void writeJson(Path file) throws IOException {
+		JsonObject report = new JsonObject();
+		report.addProperty("wallNanos", System.nanoTime() - start);
+
+		JsonObject phasesJson = new JsonObject();
+		for (Phase phase : Phase.values()) {
+			JsonObject phaseJson = new JsonObject();
+			phaseJson.addProperty("nanos", getNanos(phase));
+			phaseJson.addProperty("count", getCount(phase));
+			phasesJson.add(phase.name().toLowerCase(Locale.ROOT), phaseJson);
+		}
+		report.add("phases", phasesJson);
+
+		JsonObject lookupsJson = new JsonObject();
+		for (MappingType type : lookupTypes) {
+			JsonObject lookupJson = new JsonObject();
+			lookupJson.addProperty("total", getLookups(type));
+			lookupJson.addProperty("cacheHits", getCacheHits(type));
+			lookupJson.addProperty("unmapped", getUnmapped(type));
+			lookupsJson.add(type.name().toLowerCase(Locale.ROOT), lookupJson);
+		}
+		report.add("lookups", lookupsJson);
+
+		JsonObject hierarchyJson = new JsonObject();
+		hierarchyJson.addProperty("lookups", getCount(Phase.HIERARCHY));
+		hierarchyJson.addProperty("resolved", hierarchyResolved.sum());
+		report.add("hierarchy", hierarchyJson);
+
+		report.addProperty("unchangedClasses", unchanged.sum());
+		JsonArray classesJson = new JsonArray();
+		for (ClassTiming timing : classes) {
+			JsonObject classJson = new JsonObject();
+			classJson.addProperty("path", timing.path());
+			classJson.addProperty("readNanos", timing.readNanos());
+			classJson.addProperty("remapNanos", timing.remapNanos());
+			classJson.addProperty("writeNanos", timing.writeNanos());
+			classesJson.add(classJson);
+		}
+		report.add("classes", classesJson);
+
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) Files.createDirectories(parent);
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			new GsonBuilder().setPrettyPrinting().create().toJson(report, writer);
+		}
+	}
+
+	/**
+	 * @param amount The maximum amount of classes to return
+	 * @return The classes that took the longest to read, remap and write, slowest first
+	 */
+	public List<ClassTiming> getSlowestClasses(int amount) {
+		return classes.stream().sorted(Comparator.comparingLong(ClassTiming::totalNanos).reversed()).limit(amount).toList();
+	}
+
+	private static String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+	}
+
+	private static String typeName(MappingType type) {
+		return switch (type) {
+			case CLASS -> "Classes";
+			case METHOD -> "Methods";
+			default -> "Fields";
+		};
+	}
+
+	/**
+	 * The timings of a single remapped class.
+	 * @param path The relative path of the class
+	 * @param readNanos The time it took to read the class in nanoseconds
+	 * @param remapNanos The time it took to ASMify and remap the class in nanoseconds
+	 * @param writeNanos The time it took to write the dump in nanoseconds
+	 */
+	public record ClassTiming(String path, long readNanos, long remapNanos, long writeNanos) {
+		/**
+		 * @return The total time spent on this class in nanoseconds
+		 */
+		public long totalNanos() {
+			return readNanos + remapNanos + writeNanos;
+		}
+	}
+
+	private static class Counter {
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder count = new LongAdder();
+
+		private void add(long nanos) {
+			this.nanos.add(nanos);
+			count.increment();
+		}
+	}
+
+	private static class LookupCounter {
+		private final LongAdder total = new LongAdder();
+		private final LongAdder cached = new LongAdder();
+		private final LongAdder unmapped = new LongAdder();
+	}
+}
@@ -0,0 +1,123 @@
+package com.ptsmods.asmremapper.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store of downloaded artifacts, keyed by their SHA-1 hash.
+ * <p>
+ * Artifacts are stored at {@code objects/<first two characters of the hash>/<hash>} inside the root directory.
+ * Downloads are streamed straight to a temporary file inside the store while being hashed and are only moved into place
+ * once their hash has been verified, so the store never contains partial or corrupt artifacts.
+ */
+public class ArtifactStore {
+	private static final int timeout = 30_000;
+	private static final Pattern sha1Pattern = Pattern.compile("[0-9a-f]{40}");
+	private final Path root;
+
+	/**
+	 * @param root The directory to store artifacts in, created when the first artifact gets stored
+	 */
+	public ArtifactStore(Path root) {
+		this.root = root;
+	}
+
+	/**
+	 * @return The directory artifacts are stored in
+	 */
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * Gets the path an artifact with the given hash is (or would be) stored at.
+	 * @param sha1 The SHA-1 hash of the artifact
+	 * @return The path of the artifact
+	 * @throws IOException If the given hash is not a SHA-1 hash, e.g. because it came from a malformed manifest
+	 */
+	public Path resolve(String sha1) throws IOException {
+		// The hash ends up in the path, anything but hex digits could point outside the store.
+		sha1 = sha1.toLowerCase(Locale.ROOT);
+		if (!sha1Pattern.matcher(sha1).matches()) throw new IOException("Invalid SHA-1 hash " + sha1);
+
+		return root.resolve("objects").resolve(sha1.substring(0, 2)).resolve(sha1);
+	}
+
+	/**
+	 * @param sha1 The SHA-1 hash of the artifact
+	 * @return Whether an artifact with the given hash is stored
+	 * @throws IOException If the given hash is not a SHA-1 hash
+	 */
+	public boolean contains(String sha1) throws IOException {
+		return Files.isRegularFile(resolve(sha1));
+	}
+
+	/**
+	 * Gets the artifact with the given hash, downloading it from the given url only if it is not stored yet.
+	 * @param url The url to download the artifact from if it is missing
+	 * @param sha1 The SHA-1 hash of the artifact
+	 * @return The path of the stored artifact
+	 * @throws IOException If the artifact could not be downloaded, its hash does not match or the given hash is not a SHA-1 hash
+	 */
+	public Path get(URL url, String sha1) throws IOException {
+		Path file = resolve(sha1);
+		if (Files.isRegularFile(file)) return file;
+
+		try (InputStream in = open(url)) {
+			return put(in, sha1);
+		}
+	}
+
+	/**
+	 * Stores the contents of the given stream.
+	 * @param in The stream to read the artifact from, it is not closed
+	 * @param sha1 The expected SHA-1 hash of the artifact
+	 * @return The path of the stored artifact
+	 * @throws IOException If the stream could not be read, its hash does not match or the given hash is not a SHA-1 hash
+	 */
+	public Path put(InputStream in, String sha1) throws IOException {
+		Path file = resolve(sha1);
+		Files.createDirectories(file.getParent());
+
+		Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+		try {
+			DigestInputStream digestIn = new DigestInputStream(in, sha1());
+			Files.copy(digestIn, tempFile, StandardCopyOption.REPLACE_EXISTING);
+
+			String actual = HexFormat.of().formatHex(digestIn.getMessageDigest().digest());
+			if (!actual.equalsIgnoreCase(sha1)) throw new IOException("Hash mismatch, expected " + sha1 + " but got " + actual);
+
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+
+		return file;
+	}
+
+	static InputStream open(URL url) throws IOException {
+		URLConnection connection = url.openConnection();
+		connection.setConnectTimeout(timeout);
+		connection.setReadTimeout(timeout);
+		return connection.getInputStream();
+	}
+
+	private static MessageDigest sha1() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError("Every Java platform is required to support SHA-1", e);
+		}
+	}
+}
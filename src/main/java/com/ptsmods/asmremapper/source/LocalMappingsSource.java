@@ -0,0 +1,43 @@
+package com.ptsmods.asmremapper.source;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Provides client mappings from the local filesystem without ever touching the network.
+ * <p>
+ * The given path may either be a mappings file, which is then used for every version,
+ * or a directory containing a {@code <version>.txt} or {@code <version>/client.txt} file per version.
+ */
+public class LocalMappingsSource implements MappingsSource {
+	private final Path path;
+
+	/**
+	 * @param path The mappings file or a directory containing the mappings of each version
+	 */
+	public LocalMappingsSource(Path path) {
+		this.path = path;
+	}
+
+	@Override
+	public Path getClientMappings(String minecraftVer) throws IOException {
+		if (Files.isRegularFile(path)) return path;
+
+		Path file = path.resolve(minecraftVer + ".txt");
+		if (Files.isRegularFile(file)) return file;
+
+		file = path.resolve(minecraftVer).resolve("client.txt");
+		if (Files.isRegularFile(file)) return file;
+
+		throw new FileNotFoundException("Could not find client mappings for version " + minecraftVer + " in " + path);
+	}
+
+	@Override
+	public String identify(String minecraftVer) throws IOException {
+		// Local files may be edited or replaced, which their size and modification time tell without reading them.
+		Path file = getClientMappings(minecraftVer);
+		return file.toAbsolutePath() + " " + Files.size(file) + " " + Files.getLastModifiedTime(file).toMillis();
+	}
+}
@@ -0,0 +1,26 @@
+package com.ptsmods.asmremapper.source;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Provides the Moj client mappings (in the ProGuard format) of Minecraft versions.
+ */
+public interface MappingsSource {
+	/**
+	 * Gets the client mappings of the given Minecraft version as a local file, fetching it first if required.
+	 * @param minecraftVer The Minecraft version to get the mappings of, e.g. 1.18.1
+	 * @return The path to the client mappings
+	 * @throws IOException If the mappings are not available or could not be fetched
+	 */
+	Path getClientMappings(String minecraftVer) throws IOException;
+
+	/**
+	 * Identifies the client mappings of the given Minecraft version without fetching or reading them,
+	 * so it can be told whether they changed since an earlier run without waiting on a download.
+	 * @param minecraftVer The Minecraft version to identify the mappings of, e.g. 1.18.1
+	 * @return A string that differs whenever {@link #getClientMappings(String)} would return different mappings
+	 * @throws IOException If the mappings could not be identified
+	 */
+	String identify(String minecraftVer) throws IOException;
+}
@@ -0,0 +1,110 @@
+package com.ptsmods.asmremapper.source;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Provides client mappings as listed in Mojang's version manifest.
+ * <p>
+ * The per-version metadata and the client mappings are stored in an {@link ArtifactStore} by the SHA-1 hashes the manifest lists for them,
+ * so they are only ever downloaded once. The manifest itself is kept in the root of the store and is only fetched again
+ * when it does not list the requested version yet. In offline mode nothing is fetched at all and everything has to be in the store already.
+ */
+public class RemoteMappingsSource implements MappingsSource {
+	/**
+	 * The url of Mojang's version manifest, the v2 manifest also lists the hash of the metadata of each version.
+	 */
+	public static final String defaultManifestUrl = "https://piston-meta.mojang.com/mc/game/version_manifest_v2.json";
+	private static final Gson gson = new Gson();
+	private final ArtifactStore store;
+	private final URL manifestUrl;
+	private final boolean offline;
+
+	/**
+	 * @param store The store to keep the manifest and the downloaded artifacts in
+	 * @param manifestUrl The url of the version manifest
+	 * @param offline Whether to resolve everything from the store without touching the network
+	 */
+	public RemoteMappingsSource(ArtifactStore store, URL manifestUrl, boolean offline) {
+		this.store = store;
+		this.manifestUrl = manifestUrl;
+		this.offline = offline;
+	}
+
+	@Override
+	public Path getClientMappings(String minecraftVer) throws IOException {
+		JsonObject version = findVersion(minecraftVer);
+		if (!version.has("sha1")) throw new IOException("Manifest does not list the hash of version " + minecraftVer + ", use the v2 manifest.");
+
+		JsonObject metadata = readJson(fetch(new URL(version.get("url").getAsString()), version.get("sha1").getAsString()));
+		JsonObject downloads = metadata.getAsJsonObject("downloads");
+		JsonObject clientMappings = downloads == null ? null : downloads.getAsJsonObject("client_mappings");
+		if (clientMappings == null) throw new FileNotFoundException("Version " + minecraftVer + " has no client mappings.");
+
+		return fetch(new URL(clientMappings.get("url").getAsString()), clientMappings.get("sha1").getAsString());
+	}
+
+	@Override
+	public String identify(String minecraftVer) {
+		// The mappings of a released version never change, so there's no need to look at the manifest for this.
+		return manifestUrl + " " + minecraftVer;
+	}
+
+	private JsonObject findVersion(String minecraftVer) throws IOException {
+		Path manifestFile = store.getRoot().resolve("version_manifest.json");
+		JsonObject version = Files.isRegularFile(manifestFile) ? findVersion(readJson(manifestFile), minecraftVer) : null;
+		if (version != null) return version;
+
+		// The cached manifest is missing or predates the requested version, so it's out of date.
+		if (offline) throw new FileNotFoundException("Version " + minecraftVer + " is not in the cached manifest and we're offline.");
+
+		Files.createDirectories(manifestFile.getParent());
+		Path tempFile = Files.createTempFile(manifestFile.getParent(), "version_manifest", ".tmp");
+		try {
+			try (InputStream in = ArtifactStore.open(manifestUrl)) {
+				Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			version = findVersion(readJson(tempFile), minecraftVer);
+			Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+
+		if (version == null) throw new FileNotFoundException("Version " + minecraftVer + " is not listed in the version manifest.");
+		return version;
+	}
+
+	private Path fetch(URL url, String sha1) throws IOException {
+		if (store.contains(sha1)) return store.resolve(sha1);
+		if (offline) throw new FileNotFoundException("Artifact " + url + " (" + sha1 + ") is not in the store and we're offline.");
+
+		return store.get(url, sha1);
+	}
+
+	private static JsonObject findVersion(JsonObject manifest, String minecraftVer) {
+		if (manifest == null || !manifest.has("versions")) return null;
+
+		for (JsonElement version : manifest.getAsJsonArray("versions"))
+			if (version.getAsJsonObject().get("id").getAsString().equals(minecraftVer)) return version.getAsJsonObject();
+
+		return null;
+	}
+
+	private static JsonObject readJson(Path file) throws IOException {
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return gson.fromJson(reader, JsonObject.class);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.ptsmods.asmremapper.util;
+
+import java.util.function.Function;
+
+/**
+ * Conversions between Java type names and JVM descriptors, and between descriptors of different namespaces.
+ * <p>
+ * Everything works in a single pass over the input without any regular expressions or intermediate arrays.
+ */
+public final class Descriptors {
+	private Descriptors() {}
+
+	/**
+	 * Appends the descriptor of the Java type name between start and end, e.g. {@code int[]} or {@code java.lang.String}.
+	 * @param sb The StringBuilder to append to
+	 * @param s The string containing the type name
+	 * @param start The index of the first character of the type name
+	 * @param end The index after the last character of the type name
+	 */
+	public static void appendJavaType(StringBuilder sb, String s, int start, int end) {
+		while (end - start > 2 && s.charAt(end - 1) == ']') {
+			sb.append('[');
+			end -= 2;
+		}
+
+		char primitive = switch (end - start) {
+			case 3 -> s.startsWith("int", start) ? 'I' : 0;
+			case 4 -> s.startsWith("byte", start) ? 'B' : s.startsWith("char", start) ? 'C' : s.startsWith("long", start) ? 'J' :
+					s.startsWith("void", start) ? 'V' : 0; // Void for return types
+			case 5 -> s.startsWith("float", start) ? 'F' : s.startsWith("short", start) ? 'S' : 0;
+			case 6 -> s.startsWith("double", start) ? 'D' : 0;
+			case 7 -> s.startsWith("boolean", start) ? 'Z' : 0;
+			default -> 0;
+		};
+
+		if (primitive != 0) {
+			sb.append(primitive);
+			return;
+		}
+
+		sb.append('L');
+		for (int i = start; i < end; i++) {
+			char ch = s.charAt(i);
+			sb.append(ch == '.' ? '/' : ch);
+		}
+		sb.append(';');
+	}
+
+	/**
+	 * Replaces every class in the given field or method descriptor with the name the given mapper returns for it.
+	 * @param descriptor The descriptor to map
+	 * @param mapper Function returning the new internal name of a class, or null to keep the current one
+	 * @return The mapped descriptor, the passed instance itself if no class was changed
+	 */
+	public static String mapClasses(String descriptor, Function<String, String> mapper) {
+		int start = descriptor.indexOf('L');
+		if (start == -1) return descriptor; // Only primitives
+
+		StringBuilder sb = null;
+		int copied = 0; // Everything before this index is in sb already
+		while (start != -1) {
+			int end = descriptor.indexOf(';', start);
+			String name = descriptor.substring(start + 1, end);
+			String mapped = mapper.apply(name);
+
+			if (mapped != null && !mapped.equals(name)) {
+				if (sb == null) sb = new StringBuilder(descriptor.length() + 32);
+				sb.append(descriptor, copied, start + 1).append(mapped);
+				copied = end;
+			}
+
+			start = descriptor.indexOf('L', end);
+		}
+
+		return sb == null ? descriptor : sb.append(descriptor, copied, descriptor.length()).toString();
+	}
+}
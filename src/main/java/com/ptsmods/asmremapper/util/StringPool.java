@@ -0,0 +1,33 @@
+package com.ptsmods.asmremapper.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool of strings that makes equal strings share a single instance, like {@link String#intern()} but without touching the JVM-wide string table,
+ * so everything in it can be collected along with the pool.
+ * <p>
+ * Mappings and class files repeat the same names and descriptors over and over, e.g. the official name {@code a} of thousands of members,
+ * so pooling them saves most of the memory they would otherwise take up. Pools are thread-safe.
+ */
+public class StringPool {
+	private final Map<String, String> strings = new ConcurrentHashMap<>();
+
+	/**
+	 * @param s The string to intern, may be null
+	 * @return The pooled string equal to the given one, the given one itself if there was none yet
+	 */
+	public String intern(String s) {
+		if (s == null) return null;
+
+		String existing = strings.putIfAbsent(s, s);
+		return existing == null ? s : existing;
+	}
+
+	/**
+	 * @return The amount of distinct strings in this pool
+	 */
+	public int size() {
+		return strings.size();
+	}
+}
@@ -0,0 +1,118 @@
+package com.ptsmods.asmremapper;
+
+import com.ptsmods.asmremapper.corpus.CorpusGenerator;
+import com.ptsmods.asmremapper.mappings.Mappings;
+import com.ptsmods.asmremapper.mappings.Namespace;
+import com.ptsmods.asmremapper.source.LocalMappingsSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.*;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemapSessionTest {
+
+	@Test
+	void testConcurrentDumps(@TempDir Path dir) throws Exception {
+		CorpusGenerator generator = new CorpusGenerator(7, 200, 1500, 1000);
+		Path yarn = generator.writeYarn(dir.resolve("yarn"));
+		Path moj = generator.writeMoj(dir.resolve("moj"));
+		Path minecraft = generator.writeMinecraftJar(dir.resolve("minecraft-named.jar"));
+
+		MappingsLoader loader = new MappingsLoader(dir.resolve("cache"));
+		Mappings yarnMappings = loader.loadYarn(yarn);
+		assertTrue(Files.exists(dir.resolve("cache").resolve("yarn").resolve("yarn.bin")), "Parsed mappings should be cached.");
+		assertEquals(yarnMappings.getMethodMappings().size(), loader.loadYarn(yarn).getMethodMappings().size());
+
+		List<byte[]> classes = new ArrayList<>();
+		for (int i = 0; i < 16; i++) classes.add(generator.createModClass("com/example/Mod" + i, 5, 20));
+
+		try (RemapSession session = RemapSession.builder()
+				.yarn(yarnMappings)
+				.moj(loader.loadMoj(CorpusGenerator.minecraftVer, new LocalMappingsSource(moj.getParent())))
+				.classpath(List.of(minecraft))
+				.mapUtil("com.example.ASMDump")
+				.build()) {
+			List<String> expected = new ArrayList<>();
+			for (byte[] classBytes : classes) expected.add(session.dump(classBytes, "com.example.dump"));
+			assertTrue(expected.get(0).startsWith("package com.example.dump;"));
+			assertTrue(expected.get(0).contains("map(\"method_"));
+
+			// The session is shared by all threads, just like it would be by all tasks of a build.
+			ExecutorService executor = Executors.newFixedThreadPool(4);
+			try {
+				List<Future<String>> dumps = new ArrayList<>();
+				for (byte[] classBytes : classes) dumps.add(executor.submit(() -> session.dump(classBytes, "com.example.dump")));
+				for (int i = 0; i < classes.size(); i++) assertEquals(expected.get(i), dumps.get(i).get());
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	@Test
+	void testRemapClass(@TempDir Path dir) throws Exception {
+		CorpusGenerator generator = new CorpusGenerator(7, 200, 1500, 1000);
+		MappingsLoader loader = new MappingsLoader(null);
+		Path yarn = generator.writeYarn(dir.resolve("yarn"));
+		Path moj = generator.writeMoj(dir.resolve("moj"));
+
+		// A mod class extending a Minecraft class, overriding one of its methods and accessing one of its fields.
+		CorpusGenerator.Member field = generator.getFields().get(0);
+		CorpusGenerator.Member method = generator.getMethods().stream().filter(m -> m.owner() == field.owner()).findFirst().orElseThrow();
+		ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "com/example/ModEntity", null, generator.getNamed(field.owner()), null);
+		writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, method.named(), method.descriptor(), null, null).visitEnd();
+		MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC, "touch", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitFieldInsn(Opcodes.GETFIELD, "com/example/ModEntity", field.named(), field.descriptor());
+		mv.visitInsn(Type.getType(field.descriptor()).getSize() == 2 ? Opcodes.POP2 : Opcodes.POP);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(2, 1);
+		mv.visitEnd();
+		writer.visitEnd();
+		byte[] classBytes = writer.toByteArray();
+
+		Path mod = Files.createDirectories(dir.resolve("mod/com/example"));
+		Files.write(mod.resolve("ModEntity.class"), classBytes);
+
+		try (RemapSession session = RemapSession.builder()
+				.yarn(loader.loadYarn(yarn))
+				.moj(loader.loadMoj(CorpusGenerator.minecraftVer, new LocalMappingsSource(moj.getParent())))
+				.classpath(List.of(generator.writeMinecraftJar(dir.resolve("minecraft-named.jar")), dir.resolve("mod")))
+				.build()) {
+			ClassNode intermediary = read(session.remap(classBytes, Namespace.INTERMEDIARY));
+			assertEquals("com/example/ModEntity", intermediary.name);
+			assertEquals("net/minecraft/class_" + field.owner(), intermediary.superName);
+			assertEquals("method_" + method.named().substring("method".length()), intermediary.methods.get(0).name);
+			assertEquals("field_" + field.named().substring("field".length()), ((FieldInsnNode) intermediary.methods.get(1).instructions.get(1)).name);
+
+			ClassNode mojClass = read(session.remap(classBytes, Namespace.MOJ));
+			assertEquals(method.moj(), mojClass.methods.get(0).name);
+			assertEquals(field.moj(), ((FieldInsnNode) mojClass.methods.get(1).instructions.get(1)).name);
+
+			assertThrows(IllegalStateException.class, () -> session.dump(classBytes, "com.example.dump"), "Dumps require a map util.");
+		}
+	}
+
+	@Test
+	void testMissingMappings() {
+		assertThrows(NullPointerException.class, () -> RemapSession.builder().mapUtil("com.example.ASMDump").build());
+	}
+
+	private static ClassNode read(byte[] classBytes) {
+		ClassNode node = new ClassNode();
+		new ClassReader(classBytes).accept(node, 0);
+		return node;
+	}
+}
@@ -0,0 +1,47 @@
+package com.ptsmods.asmremapper;
+
+import com.ptsmods.asmremapper.io.ClassInput;
+import com.ptsmods.asmremapper.io.DumpOutput;
+import com.ptsmods.asmremapper.io.IncrementalManifest;
+import com.ptsmods.asmremapper.mappings.Namespace;
+import com.ptsmods.asmremapper.metrics.RemapMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemapperTest {
+
+	@Test
+	void testUnchangedRemapTo(@TempDir Path dir) throws Exception {
+		byte[] classBytes = {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE};
+		Path input = dir.resolve("input"), output = dir.resolve("output");
+		Files.createDirectories(input.resolve("com/example"));
+		Files.write(input.resolve("com/example/A.class"), classBytes);
+		Files.createDirectories(output.resolve("com/example"));
+		Files.write(output.resolve("com/example/A.class"), classBytes);
+
+		IncrementalManifest previous = new IncrementalManifest(0);
+		previous.put("com/example/A.class", IncrementalManifest.hash(classBytes), "com/example/A.class");
+		IncrementalManifest current = new IncrementalManifest(0);
+
+		// Where remapped classes go depends on the mappings, but a run in which nothing changed should still never load them.
+		FutureTask<RemapSession> session = new FutureTask<>(() -> {
+			throw new IOException("Mappings should not be loaded");
+		});
+		Remapper remapper = new Remapper(session, null, 1, RemapMetrics.none, Namespace.MOJ);
+		try (ClassInput classInput = ClassInput.open(input, path -> true)) {
+			Remapper.Result result = remapper.remap(classInput, List.of("com/example/A.class"), false, DumpOutput.open(output, false), previous, current);
+			assertEquals(new Remapper.Result(0, 1, 0), result);
+		}
+
+		assertFalse(session.isDone());
+		assertEquals("com/example/A.class", current.getOutput("com/example/A.class"));
+	}
+}
@@ -0,0 +1,65 @@
+package com.ptsmods.asmremapper;
+
+import com.ptsmods.asmremapper.io.ClassInput;
+import com.ptsmods.asmremapper.io.DumpOutput;
+import com.ptsmods.asmremapper.io.IncrementalManifest;
+import com.ptsmods.asmremapper.metrics.RemapMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WatcherTest {
+
+	@Test
+	void testModifiedDirectory(@TempDir Path dir) throws Exception {
+		Path input = dir.resolve("input"), output = dir.resolve("output");
+		IncrementalManifest manifest = remapped(input, output);
+
+		// Directories get an ENTRY_MODIFY whenever a file in them changes, which does not mean they were deleted.
+		watcher(input, output, manifest).remap(Set.of("com", "com/example"));
+		assertEquals(Set.of("com/example/A.class"), manifest.getClasses());
+		assertTrue(Files.exists(output.resolve("com/example/ADump.java")));
+	}
+
+	@Test
+	void testDeletedDirectory(@TempDir Path dir) throws Exception {
+		Path input = dir.resolve("input"), output = dir.resolve("output");
+		IncrementalManifest manifest = remapped(input, output);
+
+		Files.delete(input.resolve("com/example/A.class"));
+		Files.delete(input.resolve("com/example"));
+		watcher(input, output, manifest).remap(Set.of("com/example"));
+		assertTrue(manifest.getClasses().isEmpty());
+		assertFalse(Files.exists(output.resolve("com/example/ADump.java")));
+	}
+
+	// Sets up an input directory with a single class whose dump was written by a previous batch.
+	private static IncrementalManifest remapped(Path input, Path output) throws IOException {
+		byte[] classBytes = {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE};
+		Files.createDirectories(input.resolve("com/example"));
+		Files.write(input.resolve("com/example/A.class"), classBytes);
+		Files.createDirectories(output.resolve("com/example"));
+		Files.writeString(output.resolve("com/example/ADump.java"), "// Dump");
+
+		IncrementalManifest manifest = new IncrementalManifest(0);
+		manifest.put("com/example/A.class", IncrementalManifest.hash(classBytes), "com/example/ADump.java");
+		return manifest;
+	}
+
+	private static Watcher watcher(Path input, Path output, IncrementalManifest manifest) throws IOException {
+		// Neither of these batches remaps anything, so the mappings should never be needed.
+		FutureTask<RemapSession> session = new FutureTask<>(() -> {
+			throw new IOException("Mappings should not be loaded");
+		});
+
+		return new Watcher(new Remapper(session, "com.dump", 1, RemapMetrics.none, null), input, ClassInput.open(input, path -> true),
+				path -> true, DumpOutput.open(output, false), manifest, null);
+	}
+}
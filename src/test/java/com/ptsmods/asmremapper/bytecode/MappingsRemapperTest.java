@@ -0,0 +1,113 @@
+package com.ptsmods.asmremapper.bytecode;
+
+import com.ptsmods.asmremapper.hierarchy.ClassHierarchy;
+import com.ptsmods.asmremapper.mappings.MappingTree;
+import com.ptsmods.asmremapper.mappings.Namespace;
+import com.ptsmods.asmremapper.mappings.ProGuardReader;
+import com.ptsmods.asmremapper.mappings.TinyV2Reader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.*;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappingsRemapperTest {
+	private static final Handle metafactory = new Handle(Opcodes.H_INVOKESTATIC, "java/lang/invoke/LambdaMetafactory", "metafactory",
+			"(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodType;" +
+					"Ljava/lang/invoke/MethodHandle;Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;", false);
+
+	@Test
+	void testOverloadedLambda(@TempDir Path dir) throws IOException {
+		// Callback declares two methods named apply, only the descriptor tells which one a lambda implements.
+		try (ClassHierarchy hierarchy = hierarchy(dir)) {
+			MappingsRemapper remapper = new MappingsRemapper(mappings(), hierarchy, Namespace.INTERMEDIARY);
+			assertEquals("method_1", remapLambda(remapper, "apply", "net/minecraft/Callback", "(Ljava/lang/Object;)Ljava/lang/Object;"));
+			assertEquals("method_2", remapLambda(remapper, "apply", "net/minecraft/Callback", "(Ljava/lang/String;)Ljava/lang/String;"));
+			assertEquals("apply", remapLambda(remapper, "apply", "net/minecraft/Callback", "(I)I"));
+			assertEquals("update", remapLambda(new MappingsRemapper(mappings(), hierarchy, Namespace.MOJ), "apply", "net/minecraft/Callback", "(Ljava/lang/String;)Ljava/lang/String;"));
+		}
+	}
+
+	@Test
+	void testInheritedLambda(@TempDir Path dir) throws IOException {
+		// Child declares nothing itself, lambdas implementing it implement the tick method of Parent.
+		try (ClassHierarchy hierarchy = hierarchy(dir)) {
+			assertEquals("method_3", remapLambda(new MappingsRemapper(mappings(), hierarchy, Namespace.INTERMEDIARY), "tick", "net/minecraft/Child", "()V"));
+			assertEquals("tick", remapLambda(new MappingsRemapper(mappings(), hierarchy, Namespace.MOJ), "tick", "net/minecraft/Child", "()V"));
+		}
+	}
+
+	private static MappingTree mappings() throws IOException {
+		return MappingTree.of(TinyV2Reader.read(new StringReader("""
+				tiny	2	0	official	intermediary	named
+				c	a	net/minecraft/class_1	net/minecraft/Callback
+					m	(Ljava/lang/Object;)Ljava/lang/Object;	a	method_1	apply
+					m	(Ljava/lang/String;)Ljava/lang/String;	b	method_2	apply
+				c	b	net/minecraft/class_2	net/minecraft/Parent
+					m	()V	a	method_3	tick
+				c	c	net/minecraft/class_3	net/minecraft/Child
+				""")), ProGuardReader.read(new StringReader("""
+				net.minecraft.Callback -> a:
+				    java.lang.Object apply(java.lang.Object) -> a
+				    java.lang.String update(java.lang.String) -> b
+				net.minecraft.Parent -> b:
+				    void tick() -> a
+				net.minecraft.Child -> c:
+				""")));
+	}
+
+	// The named Minecraft interfaces, written to a directory the hierarchy reads them from.
+	private static ClassHierarchy hierarchy(Path dir) throws IOException {
+		Files.createDirectories(dir.resolve("net/minecraft"));
+		ClassWriter callback = iface("net/minecraft/Callback");
+		callback.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "apply", "(Ljava/lang/Object;)Ljava/lang/Object;", null, null).visitEnd();
+		MethodVisitor mv = callback.visitMethod(Opcodes.ACC_PUBLIC, "apply", "(Ljava/lang/String;)Ljava/lang/String;", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitInsn(Opcodes.ARETURN);
+		mv.visitMaxs(1, 2);
+		mv.visitEnd();
+		Files.write(dir.resolve("net/minecraft/Callback.class"), callback.toByteArray());
+
+		ClassWriter parent = iface("net/minecraft/Parent");
+		parent.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "tick", "()V", null, null).visitEnd();
+		Files.write(dir.resolve("net/minecraft/Parent.class"), parent.toByteArray());
+		Files.write(dir.resolve("net/minecraft/Child.class"), iface("net/minecraft/Child", "net/minecraft/Parent").toByteArray());
+
+		return new ClassHierarchy(List.of(dir), null);
+	}
+
+	private static ClassWriter iface(String name, String... interfaces) {
+		ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE, name, null, "java/lang/Object", interfaces);
+		return writer;
+	}
+
+	// Remaps a class creating a lambda of the given interface and returns the name of its invokedynamic instruction afterwards.
+	private static String remapLambda(MappingsRemapper remapper, String name, String iface, String samDescriptor) {
+		ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, "com/example/Mod", null, "java/lang/Object", null);
+		MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "create", "()L" + iface + ';', null, null);
+		mv.visitCode();
+		mv.visitInvokeDynamicInsn(name, "()L" + iface + ';', metafactory, Type.getType(samDescriptor),
+				new Handle(Opcodes.H_INVOKESTATIC, "com/example/Mod", "lambda$create$0", samDescriptor, false), Type.getType(samDescriptor));
+		mv.visitInsn(Opcodes.ARETURN);
+		mv.visitMaxs(1, 0);
+		mv.visitEnd();
+		writer.visitEnd();
+
+		ClassWriter remapped = new ClassWriter(0);
+		new ClassReader(writer.toByteArray()).accept(new MappingsClassRemapper(remapped, remapper), 0);
+		ClassNode node = new ClassNode();
+		new ClassReader(remapped.toByteArray()).accept(node, 0);
+		return ((InvokeDynamicInsnNode) node.methods.get(0).instructions.get(0)).name;
+	}
+}
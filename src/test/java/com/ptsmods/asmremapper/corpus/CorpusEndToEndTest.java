@@ -0,0 +1,88 @@
+package com.ptsmods.asmremapper.corpus;
+
+import com.ptsmods.asmremapper.ASMRemapper;
+import com.ptsmods.asmremapper.mappings.Mappings;
+import com.ptsmods.asmremapper.mappings.MethodMapping;
+import com.ptsmods.asmremapper.mappings.ProGuardReader;
+import com.ptsmods.asmremapper.mappings.TinyV2Reader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the CLI on a generated corpus, the same way a build would.
+class CorpusEndToEndTest {
+	// Owners and names of member references should always be map calls.
+	private static final Pattern unmapped = Pattern.compile("visit(Method|Field)Insn\\([A-Z]+, (\"net/minecraft/|map\\([^)]*\\), \"(method|field)\\d)");
+
+	@Test
+	void testCorpus(@TempDir Path dir) throws IOException {
+		CorpusGenerator generator = new CorpusGenerator(42, 400, 3500, 2500);
+		Path yarn = generator.writeYarn(dir.resolve("yarn"));
+		Path moj = generator.writeMoj(dir.resolve("moj"));
+		Path minecraft = generator.writeMinecraftJar(dir.resolve("minecraft-named.jar"));
+		Path mod = generator.writeModJar(dir.resolve("mod.jar"), 30, 5, 40);
+
+		Mappings yarnMappings = TinyV2Reader.read(yarn);
+		Mappings mojMappings = ProGuardReader.read(moj);
+		assertEquals(3500, yarnMappings.getMethodMappings().size());
+		assertEquals(2500, mojMappings.getFieldMappings().size());
+		for (CorpusGenerator.Member method : generator.getMethods().subList(0, 100)) {
+			MethodMapping mapping = yarnMappings.getMethodMapping(generator.getNamed(method.owner()), method.named(), method.descriptor());
+			assertNotNull(mapping);
+			assertEquals(method.moj(), mojMappings.getMethodMapping(mapping.owner().official(), mapping.official(), mapping.officialSignature()).named());
+		}
+
+		String[] args = {"--mappings=" + yarn, "--mojmappings=" + moj.getParent(), "--classpath=" + minecraft, "--input=" + mod,
+				"--output=" + dir.resolve("out"), "--cache=" + dir.resolve("cache"), "--package=com.example.dump", "--maputil=com.example.ASMDump",
+				"--threads=4"};
+		assertTrue(run(args).contains("Successfully remapped 30 classfiles."));
+
+		List<Path> dumps;
+		try (Stream<Path> files = Files.walk(dir.resolve("out"))) {
+			dumps = files.filter(Files::isRegularFile).toList();
+		}
+		assertEquals(30, dumps.size());
+
+		for (Path dump : dumps) {
+			String source = Files.readString(dump);
+			assertTrue(source.startsWith("package com.example.dump.com.example.mod.pkg"), dump::toString);
+			assertFalse(unmapped.matcher(source).find(), () -> "Unmapped reference in " + dump + ": " + find(source));
+			assertTrue(source.contains("mojMethod"));
+		}
+
+		// Second run should skip everything.
+		String output = run(args);
+		assertTrue(output.contains("Successfully remapped 0 classfiles, 30 unchanged."), output);
+	}
+
+	// Runs the CLI and returns what it printed.
+	private static String run(String[] args) throws IOException {
+		PrintStream out = System.out;
+		ByteArrayOutputStream captured = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8));
+		try {
+			ASMRemapper.main(args);
+		} finally {
+			System.setOut(out);
+		}
+
+		return captured.toString(StandardCharsets.UTF_8);
+	}
+
+	private static String find(String source) {
+		Matcher matcher = unmapped.matcher(source);
+		return matcher.find() ? source.substring(matcher.start(), Math.min(source.length(), matcher.end() + 100)) : null;
+	}
+}
@@ -0,0 +1,42 @@
+package com.ptsmods.asmremapper.dump;
+
+import com.ptsmods.asmremapper.hierarchy.ClassHierarchy;
+import com.ptsmods.asmremapper.mappings.ClassMapping;
+import com.ptsmods.asmremapper.mappings.FieldMapping;
+import com.ptsmods.asmremapper.mappings.Mappings;
+import com.ptsmods.asmremapper.mappings.MethodMapping;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapCallFormatterTest {
+
+	@Test
+	void testCache() throws IOException {
+		ClassMapping yarnEntity = new ClassMapping("a", "net/minecraft/class_1297", "net/minecraft/entity/Entity");
+		ClassMapping mojEntity = new ClassMapping("a", null, "net/minecraft/world/entity/Entity");
+		Mappings yarn = new Mappings(Mappings.Type.YARN, List.of(yarnEntity),
+				List.of(new MethodMapping(yarnEntity, "()D", "()D", "b", "method_23317", "getX")),
+				List.of(new FieldMapping(yarnEntity, "D", "D", "c", "field_6014", "prevX")));
+		Mappings moj = new Mappings(Mappings.Type.MOJ, List.of(mojEntity),
+				List.of(new MethodMapping(mojEntity, "()D", "()D", "b", null, "getX")),
+				List.of(new FieldMapping(mojEntity, "D", "D", "c", null, "xo")));
+
+		try (ClassHierarchy hierarchy = new ClassHierarchy(List.of(), null)) {
+			MapCallFormatter formatter = new MapCallFormatter(yarn, moj, hierarchy, "map");
+
+			for (int i = 0; i < 3; i++) {
+				assertEquals("map(\"method_23317\", \"getX\", \"getX\")", formatter.formatMethod("net/minecraft/entity/Entity", "getX", "()D"));
+				assertEquals("map(\"field_6014\", \"prevX\", \"xo\")", formatter.formatField("net/minecraft/entity/Entity", "prevX"));
+				assertNull(formatter.formatMethod("net/minecraft/entity/Entity", "getY", "()D"));
+				assertNull(formatter.formatMethod("java/lang/Object", "toString", "()Ljava/lang/String;"), "Non-Minecraft owners should not be looked up at all.");
+			}
+
+			assertEquals(3, formatter.getCacheMisses());
+			assertEquals(6, formatter.getCacheHits());
+		}
+	}
+}
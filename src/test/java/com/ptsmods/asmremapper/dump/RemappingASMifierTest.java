@@ -0,0 +1,89 @@
+package com.ptsmods.asmremapper.dump;
+
+import com.ptsmods.asmremapper.corpus.CorpusGenerator;
+import com.ptsmods.asmremapper.hierarchy.ClassHierarchy;
+import com.ptsmods.asmremapper.mappings.ProGuardReader;
+import com.ptsmods.asmremapper.mappings.TinyV2Reader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.util.TraceClassVisitor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemappingASMifierTest {
+
+	@Test
+	void testSplit(@TempDir Path dir) throws IOException {
+		CorpusGenerator generator = new CorpusGenerator(5, 100, 500, 300);
+		byte[] classBytes = generator.createModClass("com/example/Big", 3, 100);
+
+		try (ClassHierarchy hierarchy = new ClassHierarchy(List.of(generator.writeMinecraftJar(dir.resolve("minecraft-named.jar"))), null)) {
+			MapCallFormatter formatter = new MapCallFormatter(TinyV2Reader.read(generator.writeYarn(dir.resolve("yarn"))),
+					ProGuardReader.read(generator.writeMoj(dir.resolve("moj"))), hierarchy, "map");
+
+			String whole = dump(classBytes, formatter, 0);
+			String split = dump(classBytes, formatter, 50);
+
+			assertTrue(split.contains("private static void dumpMethod0(ClassWriter classWriter) {\nAnnotationVisitor annotationVisitor0;\n" +
+					"MethodVisitor methodVisitor = classWriter.visitMethod("));
+			assertTrue(split.contains("dumpMethod0_1(methodVisitor, labels);\n}\n\nprivate static void dumpMethod0_1(MethodVisitor methodVisitor, Label[] labels) {"));
+			assertTrue(split.lastIndexOf("public static byte[] dump ()") > split.lastIndexOf("private static void"), "Dump method should come last.");
+			assertTrue(split.indexOf("dumpMethod2(classWriter);\nclassWriter.visitEnd();") > split.indexOf("classWriter.visit(V"));
+
+			// Every call in the members should still be there, in the same order.
+			assertEquals(calls(whole), calls(split));
+		}
+	}
+
+	@Test
+	void testHoistNames(@TempDir Path dir) throws IOException {
+		CorpusGenerator generator = new CorpusGenerator(5, 100, 500, 300);
+		byte[] classBytes = generator.createModClass("com/example/Big", 3, 100);
+
+		try (ClassHierarchy hierarchy = new ClassHierarchy(List.of(generator.writeMinecraftJar(dir.resolve("minecraft-named.jar"))), null)) {
+			MapCallFormatter formatter = new MapCallFormatter(TinyV2Reader.read(generator.writeYarn(dir.resolve("yarn"))),
+					ProGuardReader.read(generator.writeMoj(dir.resolve("moj"))), hierarchy, "map");
+
+			String whole = dump(classBytes, formatter, 0, false);
+			String hoisted = dump(classBytes, formatter, 0, true);
+
+			List<String> mapCalls = Arrays.stream(hoisted.split("\n")).filter(line -> line.contains("map(")).toList();
+			assertFalse(mapCalls.isEmpty());
+			// Map calls are only left in the constants, and every one of them only once.
+			assertTrue(mapCalls.stream().allMatch(line -> line.startsWith("private static final String name")));
+			assertEquals(mapCalls.stream().map(line -> line.substring(line.indexOf('='))).distinct().count(), mapCalls.size());
+			assertTrue(mapCalls.size() < whole.split("map\\(", -1).length - 1, "Repeated names should share a constant.");
+			assertTrue(hoisted.contains("Names0.name0"));
+			assertTrue(hoisted.endsWith(mapCalls.get(mapCalls.size() - 1) + "\n}\n}\n"), "Holders should be nested in the dump class.");
+		}
+	}
+
+	private static String dump(byte[] classBytes, MapCallFormatter formatter, int splitBudget) {
+		return dump(classBytes, formatter, splitBudget, false);
+	}
+
+	private static String dump(byte[] classBytes, MapCallFormatter formatter, int splitBudget, boolean hoistNames) {
+		StringWriter writer = new StringWriter();
+		PrintWriter printWriter = new PrintWriter(writer);
+		new ClassReader(classBytes).accept(new TraceClassVisitor(null,
+				new RemappingASMifier(formatter, "com.example.dump", "com.example.ASMDump", printWriter, splitBudget, hoistNames), printWriter), 0);
+		printWriter.flush();
+		return writer.toString();
+	}
+
+	private static List<String> calls(String source) {
+		// Ignores declarations of the visitor variables, which are declared in every helper, and the class-level calls that move to the end.
+		return Arrays.stream(source.split("\n"))
+				.map(line -> line.startsWith("MethodVisitor ") || line.startsWith("FieldVisitor ") ? line.substring(line.indexOf(' ') + 1) : line)
+				.filter(line -> line.contains(".visit") && !line.startsWith("classWriter.visit(") && !line.startsWith("classWriter.visitEnd("))
+				.toList();
+	}
+}
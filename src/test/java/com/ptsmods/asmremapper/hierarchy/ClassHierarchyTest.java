@@ -0,0 +1,66 @@
+package com.ptsmods.asmremapper.hierarchy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassHierarchyTest {
+
+	@Test
+	void testDeclaringClass(@TempDir Path dir) throws IOException {
+		// Entity implements EntityLike and both declare getUuid, PlayerEntity extends Entity and declares nothing.
+		Path jar = dir.resolve("minecraft.jar");
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+			write(out, create("a/EntityLike", Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, "java/lang/Object", null, "getUuid"));
+			write(out, create("a/Entity", 0, "java/lang/Object", "a/EntityLike", "getUuid", "tick"));
+		}
+
+		Path classes = Files.createDirectories(dir.resolve("classes"));
+		try (OutputStream out = Files.newOutputStream(Files.createDirectories(classes.resolve("b")).resolve("PlayerEntity.class"))) {
+			out.write(create("b/PlayerEntity", 0, "a/Entity", null));
+		}
+
+		try (ClassHierarchy hierarchy = new ClassHierarchy(List.of(jar, classes), null)) {
+			assertEquals("a/EntityLike", hierarchy.getDeclaringClass("b/PlayerEntity", "getUuid", "()V"));
+			assertEquals("a/Entity", hierarchy.getDeclaringClass("b/PlayerEntity", "tick", "()V"));
+			assertEquals("b/PlayerEntity", hierarchy.getDeclaringClass("b/PlayerEntity", "tick", "(I)V"), "Undeclared methods should resolve to the owner.");
+			assertNull(hierarchy.getDeclaringClass("b/Missing", "tick", "()V"));
+			assertEquals("a/Entity", hierarchy.getClass("b/PlayerEntity").superName());
+		}
+	}
+
+	@Test
+	void testFallback() throws IOException {
+		try (ClassHierarchy hierarchy = new ClassHierarchy(List.of(), ClassLoader.getSystemClassLoader())) {
+			assertEquals("java/util/Collection", hierarchy.getDeclaringClass("java/util/ArrayList", "size", "()I"));
+			assertEquals("java/lang/Object", hierarchy.getDeclaringClass("java/util/ArrayList", "getClass", "()Ljava/lang/Class;"));
+		}
+	}
+
+	private static void write(JarOutputStream out, byte[] classBytes) throws IOException {
+		out.putNextEntry(new ZipEntry(new ClassReader(classBytes).getClassName() + ".class"));
+		out.write(classBytes);
+		out.closeEntry();
+	}
+
+	private static byte[] create(String name, int access, String superName, String iface, String... methods) {
+		ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V17, access | Opcodes.ACC_PUBLIC, name, null, superName, iface == null ? null : new String[] {iface});
+		for (String method : methods)
+			writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, method, "()V", null, null).visitEnd();
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+}
@@ -0,0 +1,57 @@
+package com.ptsmods.asmremapper.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassInputTest {
+
+	@Test
+	void testPackageGlob() {
+		Predicate<String> filter = ClassInput.packageGlob("com.example.*");
+		assertTrue(filter.test("com/example/Foo.class"));
+		assertFalse(filter.test("com/example/mixin/FooMixin.class"));
+		assertFalse(filter.test("com/examples/Foo.class"));
+
+		filter = ClassInput.packageGlob("com/example/**");
+		assertTrue(filter.test("com/example/mixin/FooMixin.class"));
+		assertFalse(filter.test("net/minecraft/Foo.class"));
+	}
+
+	@Test
+	void testZip(@TempDir Path dir) throws IOException {
+		Path jar = dir.resolve("mod.jar");
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+			for (String name : List.of("com/example/b/B.class", "com/example/A.class", "META-INF/versions/17/com/example/A.class", "assets/icon.png")) {
+				out.putNextEntry(new ZipEntry(name));
+				out.write(name.getBytes(StandardCharsets.UTF_8));
+				out.closeEntry();
+			}
+		}
+
+		try (ClassInput input = ClassInput.open(jar, path -> true)) {
+			assertEquals(List.of("com/example/A.class", "com/example/b/B.class"), input.getClasses());
+			assertEquals("com/example/b/B.class", new String(input.read("com/example/b/B.class"), StandardCharsets.UTF_8));
+		}
+
+		Path zip = dir.resolve("dumps.zip");
+		try (DumpOutput output = DumpOutput.open(zip, false)) {
+			output.write("com/example/ADump.java", "package com.example;");
+		}
+
+		try (ZipFile dumps = new ZipFile(zip.toFile())) {
+			assertEquals("package com.example;", new String(dumps.getInputStream(dumps.getEntry("com/example/ADump.java")).readAllBytes(), StandardCharsets.UTF_8));
+		}
+	}
+}
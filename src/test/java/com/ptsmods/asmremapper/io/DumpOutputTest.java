@@ -0,0 +1,87 @@
+package com.ptsmods.asmremapper.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DumpOutputTest {
+
+	@Test
+	void testFailedDumpInDirectory(@TempDir Path dir) throws IOException {
+		DumpOutput output = DumpOutput.open(dir, false);
+		output.write("com/example/ADump.java", "class ADump {}\n");
+		assertEquals("class ADump {}\n", Files.readString(dir.resolve("com/example/ADump.java")));
+
+		// A dump failing halfway through should neither leave half a dump nor its temporary file behind, nor touch the previous dump.
+		assertThrows(IOException.class, () -> output.write("com/example/ADump.java", writer -> {
+			writer.write("class ADump {");
+			throw new IOException("Failed");
+		}));
+		assertEquals("class ADump {}\n", Files.readString(dir.resolve("com/example/ADump.java")));
+		try (Stream<Path> files = Files.list(dir.resolve("com/example"))) {
+			assertEquals(1, files.count());
+		}
+	}
+
+	@Test
+	void testZip(@TempDir Path dir) throws IOException {
+		Path zip = dir.resolve("dumps.zip");
+		try (DumpOutput output = DumpOutput.open(zip, false)) {
+			assertFalse(output.isConcurrent());
+			assertThrows(IOException.class, () -> output.write("com/example/ADump.java", writer -> {
+				writer.write("class ADump {");
+				throw new IOException("Failed");
+			}));
+			output.write("com/example/BDump.java", writer -> writer.write("class BDump {}\n"));
+
+			// Dumps are copied in in the order they are written, not in the order they were prepared in.
+			DumpOutput.Prepared d = output.prepare("com/example/DDump.java", writer -> writer.write("class DDump {}\n"));
+			output.prepare("com/example/CDump.java", writer -> writer.write("class CDump {}\n")).write();
+			d.write();
+			output.prepare("com/example/EDump.java", writer -> writer.write("class EDump {}\n"));
+		}
+
+		try (ZipFile file = new ZipFile(zip.toFile())) {
+			assertEquals(List.of("com/example/BDump.java", "com/example/CDump.java", "com/example/DDump.java"), file.stream().map(ZipEntry::getName).toList(),
+					"Prepared dumps that never got written should not become entries.");
+			assertNull(file.getEntry("com/example/ADump.java"), "Failed dumps should not become entries.");
+			assertEquals("class BDump {}\n", new String(file.getInputStream(file.getEntry("com/example/BDump.java")).readAllBytes(), StandardCharsets.UTF_8),
+					"Text of a failed dump should not end up in the next one.");
+		}
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(1, files.count(), "Spilled dumps should be gone.");
+		}
+	}
+
+	@Test
+	void testAbortedZip(@TempDir Path dir) throws IOException {
+		Path zip = dir.resolve("dumps.zip");
+		try (DumpOutput output = DumpOutput.open(zip, false)) {
+			output.write("com/example/ADump.java", "class ADump {}\n");
+		}
+
+		try (DumpOutput output = DumpOutput.open(zip, false)) {
+			output.write("com/example/BDump.java", "class BDump {}\n");
+			output.abort();
+		}
+
+		// The zip of the previous run should be left alone and the temporary file should be gone.
+		try (ZipFile file = new ZipFile(zip.toFile())) {
+			assertNotNull(file.getEntry("com/example/ADump.java"));
+			assertNull(file.getEntry("com/example/BDump.java"));
+		}
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(1, files.count());
+		}
+	}
+}
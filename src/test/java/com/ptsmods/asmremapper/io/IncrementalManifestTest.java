@@ -0,0 +1,42 @@
+package com.ptsmods.asmremapper.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalManifestTest {
+
+	@Test
+	void testRoundTrip(@TempDir Path dir) throws IOException {
+		long hash = IncrementalManifest.hash(new byte[] {1, 2, 3});
+		assertNotEquals(hash, IncrementalManifest.hash(new byte[] {1, 2, 4}));
+
+		IncrementalManifest manifest = new IncrementalManifest(42);
+		manifest.put("com/example/A.class", hash, "com/example/ADump.java");
+
+		Path file = dir.resolve("incremental").resolve("manifest.bin");
+		manifest.save(file);
+
+		IncrementalManifest read = IncrementalManifest.load(file, 42);
+		assertTrue(read.isUpToDate("com/example/A.class", hash));
+		assertFalse(read.isUpToDate("com/example/A.class", hash + 1));
+		assertFalse(read.isUpToDate("com/example/B.class", hash));
+		assertEquals(Set.of("com/example/A.class"), read.getClasses());
+		assertEquals("com/example/ADump.java", read.getOutput("com/example/A.class"));
+		assertNull(read.getOutput("com/example/B.class"));
+
+		assertTrue(IncrementalManifest.load(file, 43).getClasses().isEmpty(), "Manifests with a different identity should be ignored.");
+		assertTrue(IncrementalManifest.load(dir.resolve("missing.bin"), 42).getClasses().isEmpty());
+
+		// Its outputs are still known, so they can be cleaned up.
+		IncrementalManifest stored = IncrementalManifest.load(file);
+		assertEquals(42, stored.getIdentity());
+		assertEquals("com/example/ADump.java", stored.getOutput("com/example/A.class"));
+		assertNull(IncrementalManifest.load(dir.resolve("missing.bin")));
+	}
+}
@@ -0,0 +1,45 @@
+package com.ptsmods.asmremapper.mappings;
+
+import com.ptsmods.asmremapper.corpus.CorpusGenerator;
+import com.ptsmods.asmremapper.mappings.MappingTree.MemberEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappingTreeTest {
+
+	@Test
+	void testLookups(@TempDir Path dir) throws IOException {
+		CorpusGenerator generator = new CorpusGenerator(3, 50, 500, 300);
+		MappingTree tree = MappingTree.read(generator.writeYarn(dir.resolve("yarn")), generator.writeMoj(dir.resolve("moj")));
+		assertEquals(generator.getClassCount(), tree.getClasses().size());
+
+		for (CorpusGenerator.Member method : generator.getMethods()) {
+			String owner = generator.getNamed(method.owner());
+			MemberEntry entry = tree.getMethod(Namespace.NAMED, owner, method.named(), method.descriptor());
+			assertNotNull(entry, method::toString);
+			assertEquals(method.moj(), entry.getName(Namespace.MOJ));
+			assertEquals(method.official(), entry.getName(Namespace.OFFICIAL));
+
+			// Straight from one namespace to another, without going through the official one.
+			String mojOwner = tree.mapClassName(owner, Namespace.NAMED, Namespace.MOJ);
+			String mojDescriptor = tree.mapDescriptor(method.descriptor(), Namespace.NAMED, Namespace.MOJ);
+			assertEquals(mojDescriptor, tree.getDescriptor(entry, Namespace.MOJ));
+			assertSame(entry, tree.getMethod(Namespace.MOJ, mojOwner, method.moj(), mojDescriptor));
+		}
+
+		for (CorpusGenerator.Member field : generator.getFields()) {
+			MemberEntry entry = tree.getField(Namespace.INTERMEDIARY, tree.mapClassName(generator.getNamed(field.owner()), Namespace.NAMED, Namespace.INTERMEDIARY),
+					"field_" + field.named().substring("field".length()));
+			assertNotNull(entry, field::toString);
+			assertEquals(field.named(), entry.getName(Namespace.NAMED));
+		}
+
+		assertEquals("java/lang/String", tree.mapClassName("java/lang/String", Namespace.NAMED, Namespace.MOJ));
+		assertNull(tree.getMethod(Namespace.NAMED, generator.getNamed(0), "missing", "()V"));
+	}
+}
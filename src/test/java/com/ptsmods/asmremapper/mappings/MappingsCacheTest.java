@@ -0,0 +1,126 @@
+package com.ptsmods.asmremapper.mappings;
+
+import com.ptsmods.asmremapper.corpus.CorpusGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappingsCacheTest {
+
+	@Test
+	void testRoundTrip(@TempDir Path dir) throws IOException {
+		ClassMapping entity = new ClassMapping("a", "net/minecraft/class_1297", "net/minecraft/entity/Entity");
+		ClassMapping main = new ClassMapping("net/minecraft/client/main/Main", "net/minecraft/client/main/Main", "net/minecraft/client/main/Main");
+		MethodMapping getX = new MethodMapping(entity, "()D", "()D", "b", "method_23317", "getX");
+		MethodMapping withOther = new MethodMapping(entity, "(Lnet/minecraft/entity/Entity;)V", "(La;)V", "c", "method_1", "withOther");
+		FieldMapping pos = new FieldMapping(entity, "D", "D", "d", "field_1", "pos");
+
+		Mappings yarn = new Mappings(Mappings.Type.YARN, List.of(entity, main), List.of(getX, withOther), List.of(pos));
+
+		Path file = dir.resolve("yarn.bin");
+		MappingsCache.write(yarn, 42, file);
+
+		assertNull(MappingsCache.read(file, 43), "Cache made from a different source should not be used.");
+
+		Mappings read = MappingsCache.read(file, 42);
+		assertNotNull(read);
+		assertEquals(Mappings.Type.YARN, read.getType());
+		assertEquals(main, read.getClassMapping(main.named()));
+		assertEquals(getX, read.getMethodMapping(entity.named(), "getX", "()D"));
+		assertEquals(withOther, read.getMethodMapping(entity.named(), "withOther", "(Lnet/minecraft/entity/Entity;)V"));
+		assertEquals(pos, read.getFieldMapping(entity.named(), "pos"));
+		assertSame(read.getClassMapping(entity.named()), read.getFieldMapping(entity.named(), "pos").owner());
+	}
+
+	@Test
+	void testLazy(@TempDir Path dir) throws IOException {
+		CorpusGenerator generator = new CorpusGenerator(7, 50, 500, 300);
+		Mappings parsed = TinyV2Reader.read(generator.writeYarn(dir.resolve("yarn")));
+		MappingsCache.write(parsed, 1, dir.resolve("yarn.bin"));
+
+		Mappings read = MappingsCache.read(dir.resolve("yarn.bin"), 1);
+		assertNotNull(read);
+		assertTrue(read.isLazy());
+		for (MethodMapping mapping : parsed.getMethodMappings())
+			assertEquals(mapping, read.getMethodMapping(mapping.owner().named(), mapping.named(), mapping.signature()));
+
+		// Listing every member loads the classes that were not queried yet.
+		Mappings fresh = MappingsCache.read(dir.resolve("yarn.bin"), 1);
+		assertNotNull(fresh);
+		assertEquals(parsed.getFieldMappings().size(), fresh.getFieldMappings().size());
+		assertEquals(parsed.getMethodMappings().size(), fresh.getMethodMappings().size());
+
+		MappingTree tree = MappingTree.of(read, ProGuardReader.read(generator.writeMoj(dir.resolve("moj"))));
+		CorpusGenerator.Member field = generator.getFields().get(0);
+		assertEquals(field.moj(), tree.getField(Namespace.NAMED, generator.getNamed(field.owner()), field.named()).getName(Namespace.MOJ));
+	}
+
+	@Test
+	void testLongName(@TempDir Path dir) {
+		ClassMapping mapping = new ClassMapping("a", "net/minecraft/class_1", "net/minecraft/" + "a".repeat(70000));
+		Mappings yarn = new Mappings(Mappings.Type.YARN, List.of(mapping), List.of(), List.of());
+
+		assertThrows(IOException.class, () -> MappingsCache.write(yarn, 1, dir.resolve("yarn.bin")), "Names too long for the format should not be cut off.");
+		assertFalse(Files.exists(dir.resolve("yarn.bin.tmp")));
+	}
+
+	@Test
+	void testTruncated(@TempDir Path dir) throws IOException {
+		CorpusGenerator generator = new CorpusGenerator(7, 50, 500, 300);
+		Path file = dir.resolve("yarn.bin");
+		MappingsCache.write(TinyV2Reader.read(generator.writeYarn(dir.resolve("yarn"))), 1, file);
+		byte[] bytes = Files.readAllBytes(file);
+
+		// Truncated caches should be rebuilt rather than fail once the members of a class are first needed.
+		for (int length : new int[] {bytes.length - 1, bytes.length - 20, bytes.length / 2, 30, 17, 10}) {
+			Files.write(file, Arrays.copyOf(bytes, length));
+			assertNull(MappingsCache.read(file, 1), () -> "Cache truncated to " + length + " bytes should not be used.");
+		}
+	}
+
+	@Test
+	void testCorrupted(@TempDir Path dir) throws IOException {
+		CorpusGenerator generator = new CorpusGenerator(7, 50, 500, 300);
+		Path file = dir.resolve("yarn.bin");
+		MappingsCache.write(TinyV2Reader.read(generator.writeYarn(dir.resolve("yarn"))), 1, file);
+		byte[] bytes = Files.readAllBytes(file);
+
+		// Find a class in the middle of the file that has methods, the same way the reader does.
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int stringCount = buffer.getInt(17);
+		int lastString = buffer.getInt(21 + (stringCount - 1) * 4);
+		int classRecords = lastString + 2 + Short.toUnsignedInt(buffer.getShort(lastString));
+		int classRecord = classRecords + 4 + buffer.getInt(classRecords) / 2 * 16;
+		while (buffer.getInt(buffer.getInt(classRecord + 12)) == 0) classRecord += 16;
+		int members = buffer.getInt(classRecord + 12);
+
+		// Corrupt values in the middle of the file should be caught when reading it, not once the members of a class are first needed.
+		Map<String, int[]> corruptions = Map.of(
+				"string offset", new int[] {21 + stringCount / 2 * 4, buffer.getInt(21 + stringCount / 2 * 4) + 1},
+				"string index of a class", new int[] {classRecord + 4, stringCount},
+				"member offset", new int[] {classRecord + 12, members + 20},
+				"method count", new int[] {members, Integer.MAX_VALUE / 20},
+				"string index of a method", new int[] {members + 4 + 16, stringCount + 1000});
+		for (Map.Entry<String, int[]> corruption : corruptions.entrySet()) {
+			Files.write(file, ByteBuffer.wrap(bytes.clone()).putInt(corruption.getValue()[0], corruption.getValue()[1]).array());
+			assertNull(MappingsCache.read(file, 1), () -> "Cache with a corrupt " + corruption.getKey() + " should not be used.");
+		}
+
+		Files.write(file, bytes);
+		assertNotNull(MappingsCache.read(file, 1));
+	}
+
+	@Test
+	void testMissingFile(@TempDir Path dir) throws IOException {
+		assertNull(MappingsCache.read(dir.resolve("missing.bin"), 0));
+	}
+}
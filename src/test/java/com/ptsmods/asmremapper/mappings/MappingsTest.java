@@ -0,0 +1,40 @@
+package com.ptsmods.asmremapper.mappings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappingsTest {
+
+	@Test
+	void testLookups() {
+		ClassMapping entity = new ClassMapping("a", null, "net/minecraft/world/entity/Entity");
+		List<MethodMapping> methods = new ArrayList<>();
+		List<FieldMapping> fields = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			// Overloads only differing in descriptor
+			methods.add(new MethodMapping(entity, "(I)V", "(I)V", "m" + i, null, "method" + i));
+			methods.add(new MethodMapping(entity, "(J)V", "(J)V", "m" + i, null, "methodLong" + i));
+			fields.add(new FieldMapping(entity, "I", "I", "f" + i, null, "field" + i));
+		}
+
+		Mappings moj = new Mappings(Mappings.Type.MOJ, List.of(entity), methods, fields);
+
+		assertSame(entity, moj.getClassMapping("a"));
+		assertNull(moj.getClassMapping(entity.named()), "Moj mappings should be keyed by official names.");
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("method" + i, moj.getMethodMapping("a", "m" + i, "(I)V").named());
+			assertEquals("methodLong" + i, moj.getMethodMapping(entity, "m" + i, "(J)V").named());
+			assertEquals("field" + i, moj.getFieldMapping("a", "f" + i).named());
+		}
+
+		assertTrue(moj.hasMethod("a", "m1", "(I)V"));
+		assertFalse(moj.hasMethod("a", "m1", "(D)V"));
+		assertFalse(moj.hasMethod("b", "m1", "(I)V"));
+		assertNull(moj.getMethodMapping((ClassMapping) null, "m1", "(I)V"));
+		assertNull(moj.getFieldMapping("a", "missing"));
+	}
+}
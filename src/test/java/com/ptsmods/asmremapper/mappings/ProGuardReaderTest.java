@@ -0,0 +1,60 @@
+package com.ptsmods.asmremapper.mappings;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProGuardReaderTest {
+	private static final String mappings = """
+			# {"fileName":"client.txt","id":"sourceFile"}
+			net.minecraft.world.entity.Entity -> a:
+			    double position -> c
+			    net.minecraft.world.entity.player.Player[] players -> d
+			    12:34:net.minecraft.world.entity.Entity withPlayer(net.minecraft.world.entity.player.Player,int) -> a
+			    56:56:void tick():78:79 -> e
+			    java.util.UUID getUUID() -> f
+			net.minecraft.world.entity.player.Player -> b:
+			    boolean[][] flags -> a
+			""";
+
+	@Test
+	void testRead() throws IOException {
+		Mappings moj = ProGuardReader.read(new StringReader(mappings));
+
+		ClassMapping entity = moj.getClassMapping("a");
+		assertEquals(new ClassMapping("a", null, "net/minecraft/world/entity/Entity"), entity);
+
+		MethodMapping withPlayer = moj.getMethodMapping(entity, "a", "(Lb;I)La;");
+		assertNotNull(withPlayer, "Descriptors should be translated, even when referring to classes declared later on.");
+		assertEquals("withPlayer", withPlayer.named());
+		assertEquals("(Lnet/minecraft/world/entity/player/Player;I)Lnet/minecraft/world/entity/Entity;", withPlayer.signature());
+
+		assertEquals("tick", moj.getMethodMapping("a", "e", "()V").named());
+		assertEquals("getUUID", moj.getMethodMapping("a", "f", "()Ljava/util/UUID;").named());
+		assertEquals("[Lb;", moj.getFieldMapping("a", "d").officialDescriptor());
+		assertEquals("position", moj.getFieldMapping("a", "c").named());
+		assertEquals("[[Z", moj.getFieldMapping("b", "a").descriptor());
+	}
+
+	@Test
+	void testChunked() throws IOException {
+		// Large enough to be split into chunks, every class refers to the next one, which is often in another chunk.
+		int classes = 20000;
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < classes; i++)
+			sb.append("net.minecraft.Class").append(i).append(" -> c").append(i).append(":\n# {\"fileName\":\"Class").append(i).append(".java\",\"id\":\"sourceFile\"}\n")
+					.append("    1:1:net.minecraft.Class").append((i + 1) % classes).append(" next() -> a\n");
+
+		Mappings moj = ProGuardReader.read(new StringReader(sb.toString()));
+		assertEquals(classes, moj.getClassMappings().size());
+		assertEquals(classes, moj.getMethodMappings().size());
+		for (int i = 0; i < classes; i++)
+			assertEquals("next", moj.getMethodMapping("c" + i, "a", "()Lc" + (i + 1) % classes + ';').named());
+
+		IOException e = assertThrows(IOException.class, () -> ProGuardReader.read(new StringReader(sb + "    invalid\n")));
+		assertTrue(e.getMessage().contains("line " + (classes * 3 + 1)), e.getMessage());
+	}
+}
@@ -0,0 +1,68 @@
+package com.ptsmods.asmremapper.mappings;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyV2ReaderTest {
+	private static final String tiny = """
+			tiny	2	0	official	intermediary	named
+				sorted-by-name
+			c	a	net/minecraft/class_1297	net/minecraft/entity/Entity
+				c	An entity.
+				f	D	c	field_1	pos
+				f	[Lb;	d	field_2	players
+				m	(Lb;I)La;	a	method_1	withPlayer
+					p	1		player
+					c	Returns an entity.
+				m	()V	e	method_2
+			c	b	net/minecraft/class_1657	net/minecraft/entity/player/PlayerEntity
+			c	net/minecraft/client/main/Main	net/minecraft/client/main/Main	net/minecraft/client/main/Main
+				m	(Ljava/lang/String;Lb;)V	main	main	main
+			""";
+
+	@Test
+	void testRead() throws IOException {
+		Mappings yarn = TinyV2Reader.read(new StringReader(tiny));
+
+		ClassMapping entity = yarn.getClassMapping("net/minecraft/entity/Entity");
+		assertEquals(new ClassMapping("a", "net/minecraft/class_1297", "net/minecraft/entity/Entity"), entity);
+		assertFalse(yarn.getClassMapping("net/minecraft/client/main/Main").isObfuscated());
+
+		MethodMapping withPlayer = yarn.getMethodMapping(entity, "withPlayer", "(Lnet/minecraft/entity/player/PlayerEntity;I)Lnet/minecraft/entity/Entity;");
+		assertNotNull(withPlayer, "Descriptors should be translated, even when referring to classes declared later on.");
+		assertEquals("(Lb;I)La;", withPlayer.officialSignature());
+		assertEquals("method_1", withPlayer.intermediary());
+
+		assertEquals("method_2", yarn.getMethodMapping(entity, "method_2", "()V").named(), "Unnamed members should fall back to intermediary.");
+		assertEquals("[Lnet/minecraft/entity/player/PlayerEntity;", yarn.getFieldMapping(entity, "players").descriptor());
+		assertEquals("D", yarn.getFieldMapping(entity, "pos").descriptor());
+		assertTrue(yarn.hasMethod("net/minecraft/client/main/Main", "main", "(Ljava/lang/String;Lnet/minecraft/entity/player/PlayerEntity;)V"));
+
+		assertEquals(3, yarn.getMethodMappings().size());
+		assertEquals(2, yarn.getFieldMappings().size());
+	}
+
+	@Test
+	void testInvalidHeader() {
+		assertThrows(IOException.class, () -> TinyV2Reader.read(new StringReader("v1\tofficial\tintermediary\n")));
+	}
+
+	@Test
+	void testChunked() throws IOException {
+		// Large enough to be split into chunks, every class refers to the next one, which is often in another chunk.
+		int classes = 20000;
+		StringBuilder sb = new StringBuilder("tiny\t2\t0\tofficial\tintermediary\tnamed\r\n");
+		for (int i = 0; i < classes; i++)
+			sb.append("c\tc").append(i).append("\tnet/minecraft/class_").append(i).append("\tnet/minecraft/Class").append(i).append("\r\n")
+					.append("\tm\t()Lc").append((i + 1) % classes).append(";\ta\tmethod_").append(i).append("\tnext\r\n");
+
+		Mappings yarn = TinyV2Reader.read(new StringReader(sb.toString()));
+		assertEquals(classes, yarn.getClassMappings().size());
+		for (int i = 0; i < classes; i++)
+			assertEquals("method_" + i, yarn.getMethodMapping("net/minecraft/Class" + i, "next", "()Lnet/minecraft/Class" + (i + 1) % classes + ';').intermediary());
+	}
+}
@@ -0,0 +1,60 @@
+package com.ptsmods.asmremapper.metrics;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.ptsmods.asmremapper.dump.MapCallFormatter;
+import com.ptsmods.asmremapper.hierarchy.ClassHierarchy;
+import com.ptsmods.asmremapper.mappings.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsCollectorTest {
+
+	@Test
+	void testLookups(@TempDir Path dir) throws IOException {
+		ClassMapping yarnEntity = new ClassMapping("a", "net/minecraft/class_1297", "net/minecraft/entity/Entity");
+		Mappings yarn = new Mappings(Mappings.Type.YARN, List.of(yarnEntity),
+				List.of(new MethodMapping(yarnEntity, "()D", "()D", "b", "method_23317", "getX")), List.of());
+		Mappings moj = new Mappings(Mappings.Type.MOJ, List.of(), List.of(), List.of());
+
+		StatsCollector stats = new StatsCollector();
+		try (ClassHierarchy hierarchy = new ClassHierarchy(List.of(), null)) {
+			MapCallFormatter formatter = new MapCallFormatter(yarn, moj, hierarchy, "map", stats);
+			for (int i = 0; i < 2; i++) {
+				formatter.formatMethod("net/minecraft/entity/Entity", "getX", "()D");
+				formatter.formatMethod("net/minecraft/entity/Entity", "getY", "()D");
+				formatter.formatField("net/minecraft/entity/Entity", "x");
+			}
+		}
+
+		assertEquals(4, stats.getLookups(MappingType.METHOD));
+		assertEquals(2, stats.getCacheHits(MappingType.METHOD));
+		assertEquals(2, stats.getUnmapped(MappingType.METHOD));
+		assertEquals(2, stats.getUnmapped(MappingType.FIELD));
+		assertEquals(1, stats.getCount(RemapMetrics.Phase.HIERARCHY), "Only the first unknown method should have to search the hierarchy.");
+
+		stats.classRemapped("com/example/Slow.class", 10, 1000, 10);
+		stats.classRemapped("com/example/Fast.class", 10, 100, 10);
+		stats.classUnchanged("com/example/Same.class", 10);
+		assertEquals(2, stats.getRemappedClasses());
+		assertEquals(30, stats.getNanos(RemapMetrics.Phase.READ));
+		assertEquals("com/example/Slow.class", stats.getSlowestClasses(1).get(0).path());
+
+		Path report = dir.resolve("stats.json");
+		stats.writeJson(report);
+		try (Reader reader = Files.newBufferedReader(report)) {
+			JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+			assertEquals(2, json.getAsJsonArray("classes").size());
+			assertEquals(1100, json.getAsJsonObject("phases").getAsJsonObject("remap").get("nanos").getAsLong());
+			assertEquals(2, json.getAsJsonObject("lookups").getAsJsonObject("field").get("unmapped").getAsLong());
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.ptsmods.asmremapper.source;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Serves a tiny fake manifest from a local server, so no actual network access is required.
+class RemoteMappingsSourceTest {
+	private static final String mappings = "net.minecraft.world.entity.Entity -> a:\n    int id -> b\n";
+	private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+	private final AtomicInteger requests = new AtomicInteger();
+	private HttpServer server;
+	private String root;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			requests.incrementAndGet();
+			byte[] body = files.get(exchange.getRequestURI().getPath());
+			exchange.sendResponseHeaders(body == null ? 404 : 200, body == null ? -1 : body.length);
+			if (body != null) try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+			exchange.close();
+		});
+		server.start();
+		root = "http://127.0.0.1:" + server.getAddress().getPort();
+
+		String mappingsSha1 = sha1(mappings);
+		String version = "{\"downloads\":{\"client_mappings\":{\"sha1\":\"" + mappingsSha1 + "\",\"url\":\"" + root + "/client.txt\"}}}";
+		files.put("/client.txt", mappings.getBytes(StandardCharsets.UTF_8));
+		files.put("/1.18.1.json", version.getBytes(StandardCharsets.UTF_8));
+		files.put("/manifest.json", ("{\"versions\":[{\"id\":\"1.18.1\",\"url\":\"" + root + "/1.18.1.json\",\"sha1\":\"" + sha1(version) + "\"}]}")
+				.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	void testFetchOnce(@TempDir Path dir) throws IOException {
+		ArtifactStore store = new ArtifactStore(dir);
+		Path file = new RemoteMappingsSource(store, new URL(root + "/manifest.json"), false).getClientMappings("1.18.1");
+
+		assertEquals(mappings, Files.readString(file));
+		assertEquals(store.resolve(sha1(mappings)), file);
+		assertEquals(3, requests.get());
+
+		// Everything is in the store now, so offline mode should work and nothing should be fetched again.
+		assertEquals(file, new RemoteMappingsSource(store, new URL(root + "/manifest.json"), true).getClientMappings("1.18.1"));
+		assertEquals(file, new RemoteMappingsSource(store, new URL(root + "/manifest.json"), false).getClientMappings("1.18.1"));
+		assertEquals(3, requests.get());
+	}
+
+	@Test
+	void testOffline(@TempDir Path dir) {
+		assertThrows(FileNotFoundException.class, () -> new RemoteMappingsSource(new ArtifactStore(dir), new URL(root + "/manifest.json"), true)
+				.getClientMappings("1.18.1"));
+		assertEquals(0, requests.get());
+	}
+
+	@Test
+	void testHashMismatch(@TempDir Path dir) throws IOException {
+		files.put("/client.txt", "tampered".getBytes(StandardCharsets.UTF_8));
+		ArtifactStore store = new ArtifactStore(dir);
+
+		assertThrows(IOException.class, () -> new RemoteMappingsSource(store, new URL(root + "/manifest.json"), false).getClientMappings("1.18.1"));
+		assertFalse(store.contains(sha1(mappings)));
+		try (var stream = Files.list(store.resolve(sha1(mappings)).getParent())) {
+			assertEquals(0, stream.count(), "Failed downloads should not leave temporary files behind.");
+		}
+	}
+
+	@Test
+	void testInvalidHash(@TempDir Path dir) throws IOException {
+		// A hash that isn't one could otherwise be used to write outside the store.
+		String version = "{\"downloads\":{\"client_mappings\":{\"sha1\":\"../escaped\",\"url\":\"" + root + "/client.txt\"}}}";
+		files.put("/1.18.1.json", version.getBytes(StandardCharsets.UTF_8));
+		files.put("/manifest.json", ("{\"versions\":[{\"id\":\"1.18.1\",\"url\":\"" + root + "/1.18.1.json\",\"sha1\":\"" + sha1(version) + "\"}]}")
+				.getBytes(StandardCharsets.UTF_8));
+		Path store = dir.resolve("store");
+
+		assertThrows(IOException.class, () -> new RemoteMappingsSource(new ArtifactStore(store), new URL(root + "/manifest.json"), false).getClientMappings("1.18.1"));
+		assertFalse(Files.exists(dir.resolve("escaped")));
+		assertThrows(IOException.class, () -> new ArtifactStore(store).resolve(sha1(mappings).substring(1) + "/"));
+	}
+
+	private static String sha1(String s) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package com.ptsmods.asmremapper.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DescriptorsTest {
+
+	@Test
+	void testAppendJavaType() {
+		StringBuilder sb = new StringBuilder("(");
+		String line = "int[][],java.lang.String,boolean,net.minecraft.Entity[]";
+		Descriptors.appendJavaType(sb, line, 0, 7);
+		Descriptors.appendJavaType(sb, line, 8, 24);
+		Descriptors.appendJavaType(sb, line, 25, 32);
+		Descriptors.appendJavaType(sb, line, 33, line.length());
+		assertEquals("([[ILjava/lang/String;Z[Lnet/minecraft/Entity;", sb.toString());
+	}
+
+	@Test
+	void testMapClasses() {
+		Map<String, String> names = Map.of("a", "net/minecraft/Entity", "b", "net/minecraft/World");
+		assertEquals("(Lnet/minecraft/Entity;I[Ljava/lang/String;[[Lnet/minecraft/World;)Lnet/minecraft/Entity;",
+				Descriptors.mapClasses("(La;I[Ljava/lang/String;[[Lb;)La;", names::get));
+
+		// Descriptors that don't change are not copied.
+		String descriptor = "(IJLjava/lang/Object;)V";
+		assertSame(descriptor, Descriptors.mapClasses(descriptor, names::get));
+		assertSame(descriptor, Descriptors.mapClasses(descriptor, name -> name));
+	}
+
+	@Test
+	void testStringPool() {
+		StringPool pool = new StringPool();
+		String a = pool.intern(new String("a"));
+		assertSame(a, pool.intern(new String("a")));
+		assertNull(pool.intern(null));
+		assertEquals(1, pool.size());
+	}
+}
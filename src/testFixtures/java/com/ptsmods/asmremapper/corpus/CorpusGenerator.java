@@ -0,0 +1,359 @@
+package com.ptsmods.asmremapper.corpus;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates synthetic Minecraft-like mappings and classes, so the remapper can be tested and benchmarked at scale without downloading anything.
+ * <p>
+ * A corpus consists of Yarn mappings (tiny v2 inside a jar named like an actual Yarn jar), matching Moj client mappings (ProGuard),
+ * a jar of the Minecraft classes in the named namespace (for the class hierarchy) and jars of mod classes referencing those classes.
+ * Classes get obfuscated official names like the real game, a third of them extends another Minecraft class
+ * and members are spread randomly over the classes. The same seed and sizes always generate the same corpus.
+ */
+public class CorpusGenerator {
+	/**
+	 * The Minecraft version of generated mappings.
+	 */
+	public static final String minecraftVer = "1.18.1";
+	private static final String[] simpleTypes = {"I", "J", "Z", "D", "F", "Ljava/lang/String;", "Ljava/util/UUID;"};
+	private final String[] official, named, moj;
+	private final int[] superClasses;
+	private final List<List<Member>> methods = new ArrayList<>();
+	private final List<List<Member>> fields = new ArrayList<>();
+	private final List<Member> allMethods, allFields;
+	private final List<Integer> subclasses = new ArrayList<>();
+	private final long seed;
+
+	/**
+	 * Generates a corpus about the size of an actual Minecraft release: 8000 classes, 70000 methods and 50000 fields.
+	 * @param seed The seed of the corpus
+	 * @return The generated corpus
+	 */
+	public static CorpusGenerator realistic(long seed) {
+		return new CorpusGenerator(seed, 8000, 70000, 50000);
+	}
+
+	/**
+	 * Generates a corpus.
+	 * @param seed The seed of the corpus
+	 * @param classes The amount of Minecraft classes
+	 * @param methodCount The total amount of methods, spread over the classes
+	 * @param fieldCount The total amount of fields, spread over the classes
+	 */
+	public CorpusGenerator(long seed, int classes, int methodCount, int fieldCount) {
+		this.seed = seed;
+		Random random = new Random(seed);
+		official = new String[classes];
+		named = new String[classes];
+		moj = new String[classes];
+		superClasses = new int[classes];
+
+		int packages = Math.max(1, classes / 40);
+		for (int i = 0; i < classes; i++) {
+			int pckg = random.nextInt(packages);
+			official[i] = obfuscated(i);
+			named[i] = "net/minecraft/pkg" + pckg + "/Class" + i;
+			moj[i] = "net/minecraft/world/level/pkg" + pckg + "/MojClass" + i;
+			superClasses[i] = i > 0 && random.nextInt(3) == 0 ? random.nextInt(i) : -1;
+			methods.add(new ArrayList<>());
+			fields.add(new ArrayList<>());
+		}
+
+		for (int i = 0; i < methodCount; i++) {
+			int owner = random.nextInt(classes);
+			List<Member> members = methods.get(owner);
+			StringBuilder desc = new StringBuilder("(");
+			for (int p = random.nextInt(4); p > 0; p--) desc.append(randomType(random));
+			desc.append(')').append(random.nextInt(3) == 0 ? "V" : randomType(random));
+
+			members.add(new Member(owner, obfuscated(members.size()), "method" + i, "mojMethod" + i, desc.toString()));
+		}
+
+		for (int i = 0; i < fieldCount; i++) {
+			int owner = random.nextInt(classes);
+			List<Member> members = fields.get(owner);
+			members.add(new Member(owner, obfuscated(members.size()), "field" + i, "mojField" + i, randomType(random)));
+		}
+
+		allMethods = methods.stream().flatMap(List::stream).toList();
+		allFields = fields.stream().flatMap(List::stream).toList();
+		for (int i = 0; i < classes; i++) if (superClasses[i] != -1) subclasses.add(i);
+	}
+
+	/**
+	 * @return The amount of Minecraft classes in this corpus
+	 */
+	public int getClassCount() {
+		return named.length;
+	}
+
+	/**
+	 * @return Every method in this corpus, grouped by owner
+	 */
+	public List<Member> getMethods() {
+		return allMethods;
+	}
+
+	/**
+	 * @return Every field in this corpus, grouped by owner
+	 */
+	public List<Member> getFields() {
+		return allFields;
+	}
+
+	/**
+	 * @param owner The index of the owner
+	 * @return The internal name of the given class in the named namespace
+	 */
+	public String getNamed(int owner) {
+		return named[owner];
+	}
+
+	/**
+	 * Writes the Yarn mappings jar, containing tiny v2 mappings of all classes.
+	 * @param dir The directory to write the jar to
+	 * @return The jar, named like an actual Yarn jar, so the Minecraft version can be derived from it
+	 * @throws IOException If the jar could not be written
+	 */
+	public Path writeYarn(Path dir) throws IOException {
+		Path jar = Files.createDirectories(dir).resolve("yarn-" + minecraftVer + "+build.1-v2.jar");
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+			out.putNextEntry(new ZipEntry("mappings/mappings.tiny"));
+			Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+			writer.write("tiny\t2\t0\tofficial\tintermediary\tnamed\n");
+			for (int i = 0; i < named.length; i++) {
+				writer.write("c\t" + official[i] + "\tnet/minecraft/class_" + i + '\t' + named[i] + '\n');
+				for (Member method : methods.get(i))
+					writer.write("\tm\t" + remap(method.descriptor(), official) + '\t' + method.official() + "\tmethod_" +
+							method.named().substring("method".length()) + '\t' + method.named() + '\n');
+				for (Member field : fields.get(i))
+					writer.write("\tf\t" + remap(field.descriptor(), official) + '\t' + field.official() + "\tfield_" +
+							field.named().substring("field".length()) + '\t' + field.named() + '\n');
+			}
+			writer.flush();
+			out.closeEntry();
+		}
+
+		return jar;
+	}
+
+	/**
+	 * Writes the Moj client mappings of all classes in the ProGuard format.
+	 * @param dir The directory to write the mappings to
+	 * @return The mappings file, named {@code <version>.txt}, so the directory can be used as local mappings source
+	 * @throws IOException If the mappings could not be written
+	 */
+	public Path writeMoj(Path dir) throws IOException {
+		Path file = Files.createDirectories(dir).resolve(minecraftVer + ".txt");
+		try (Writer writer = Files.newBufferedWriter(file)) {
+			writer.write("# {\"id\":\"sourceFile\",\"fileName\":\"client.txt\"}\n");
+			for (int i = 0; i < named.length; i++) {
+				writer.write(moj[i].replace('/', '.') + " -> " + official[i] + ":\n");
+				for (Member field : fields.get(i))
+					writer.write("    " + javaName(field.descriptor()) + ' ' + field.moj() + " -> " + field.official() + '\n');
+				int line = 1;
+				for (Member method : methods.get(i)) {
+					Type type = Type.getMethodType(remap(method.descriptor(), moj));
+					StringBuilder params = new StringBuilder();
+					for (Type param : type.getArgumentTypes()) params.append(params.length() == 0 ? "" : ",").append(param.getClassName());
+
+					writer.write("    " + line + ':' + (line += 3) + ':' + type.getReturnType().getClassName() + ' ' + method.moj() +
+							'(' + params + ") -> " + method.official() + '\n');
+				}
+			}
+		}
+
+		return file;
+	}
+
+	/**
+	 * Writes a jar of all Minecraft classes in the named namespace, like the jar mods are compiled against.
+	 * Classes only declare their members, their methods are abstract.
+	 * @param file The jar to write
+	 * @return The jar
+	 * @throws IOException If the jar could not be written
+	 */
+	public Path writeMinecraftJar(Path file) throws IOException {
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file))) {
+			for (int i = 0; i < named.length; i++) {
+				ClassWriter writer = new ClassWriter(0);
+				writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, named[i], null,
+						superClasses[i] == -1 ? "java/lang/Object" : named[superClasses[i]], null);
+				for (Member method : methods.get(i))
+					writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, method.named(), method.descriptor(), null, null).visitEnd();
+				for (Member field : fields.get(i))
+					writer.visitField(Opcodes.ACC_PUBLIC, field.named(), field.descriptor(), null, null).visitEnd();
+				writer.visitEnd();
+
+				out.putNextEntry(new ZipEntry(named[i] + ".class"));
+				out.write(writer.toByteArray());
+				out.closeEntry();
+			}
+		}
+
+		return file;
+	}
+
+	/**
+	 * Writes a jar of mod classes referencing Minecraft classes, methods and fields.
+	 * @param file The jar to write
+	 * @param classes The amount of classes
+	 * @param methodsPerClass The amount of methods in each class
+	 * @param referencesPerMethod The amount of Minecraft references in each method
+	 * @return The jar
+	 * @throws IOException If the jar could not be written
+	 */
+	public Path writeModJar(Path file, int classes, int methodsPerClass, int referencesPerMethod) throws IOException {
+		Random random = new Random(seed ^ classes);
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(file))) {
+			for (int i = 0; i < classes; i++) {
+				String name = "com/example/mod/pkg" + i % 10 + "/ModClass" + i;
+				out.putNextEntry(new ZipEntry(name + ".class"));
+				out.write(createModClass(name, methodsPerClass, referencesPerMethod, random));
+				out.closeEntry();
+			}
+		}
+
+		return file;
+	}
+
+	/**
+	 * Generates a single mod class referencing Minecraft classes, methods and fields.
+	 * @param name The internal name of the class
+	 * @param methodCount The amount of methods in the class
+	 * @param referencesPerMethod The amount of Minecraft references in each method
+	 * @return The class file
+	 */
+	public byte[] createModClass(String name, int methodCount, int referencesPerMethod) {
+		return createModClass(name, methodCount, referencesPerMethod, new Random(seed ^ name.hashCode()));
+	}
+
+	private byte[] createModClass(String name, int methodCount, int referencesPerMethod, Random random) {
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		writer.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+		writer.visitField(Opcodes.ACC_PRIVATE, "entity", "L" + named[random.nextInt(named.length)] + ";", null, null).visitEnd();
+
+		for (int m = 0; m < methodCount; m++) {
+			MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "method" + m, "()V", null, null);
+			mv.visitCode();
+			for (int r = 0; r < referencesPerMethod; r++) {
+				switch (random.nextInt(4)) {
+					case 0 -> invoke(mv, allMethods.get(random.nextInt(allMethods.size())), null);
+					case 1 -> {
+						// Invoked on a subclass, so the declaring class has to be looked up in the hierarchy.
+						int sub = subclasses.isEmpty() ? -1 : subclasses.get(random.nextInt(subclasses.size()));
+						List<Member> inherited = sub == -1 ? List.of() : methods.get(superClasses[sub]);
+						if (inherited.isEmpty()) invoke(mv, allMethods.get(random.nextInt(allMethods.size())), null);
+						else invoke(mv, inherited.get(random.nextInt(inherited.size())), named[sub]);
+					}
+					case 2 -> {
+						Member field = allFields.get(random.nextInt(allFields.size()));
+						mv.visitInsn(Opcodes.ACONST_NULL);
+						mv.visitFieldInsn(Opcodes.GETFIELD, named[field.owner()], field.named(), field.descriptor());
+						mv.visitInsn(Type.getType(field.descriptor()).getSize() == 2 ? Opcodes.POP2 : Opcodes.POP);
+					}
+					default -> {
+						mv.visitLdcInsn(Type.getObjectType(named[random.nextInt(named.length)]));
+						mv.visitInsn(Opcodes.POP);
+					}
+				}
+			}
+			mv.visitInsn(Opcodes.RETURN);
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+		writer.visitEnd();
+
+		return writer.toByteArray();
+	}
+
+	// Pushes default arguments, invokes the method and pops its result.
+	private void invoke(MethodVisitor mv, Member method, String owner) {
+		Type type = Type.getMethodType(method.descriptor());
+		mv.visitInsn(Opcodes.ACONST_NULL);
+		for (Type param : type.getArgumentTypes())
+			mv.visitInsn(switch (param.getSort()) {
+				case Type.LONG -> Opcodes.LCONST_0;
+				case Type.DOUBLE -> Opcodes.DCONST_0;
+				case Type.FLOAT -> Opcodes.FCONST_0;
+				case Type.OBJECT, Type.ARRAY -> Opcodes.ACONST_NULL;
+				default -> Opcodes.ICONST_0;
+			});
+
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner == null ? named[method.owner()] : owner, method.named(), method.descriptor(), false);
+		if (type.getReturnType().getSize() > 0) mv.visitInsn(type.getReturnType().getSize() == 2 ? Opcodes.POP2 : Opcodes.POP);
+	}
+
+	private String randomType(Random random) {
+		int kind = random.nextInt(10);
+		if (kind < 4) return simpleTypes[random.nextInt(simpleTypes.length)];
+
+		String type = "L" + named[random.nextInt(named.length)] + ';';
+		return kind == 9 ? "[" + type : type;
+	}
+
+	// Renders a named descriptor in another namespace, named classes are recognised by their index at the end of their name.
+	private String remap(String descriptor, String[] names) {
+		StringBuilder sb = new StringBuilder(descriptor.length() + 32);
+		int index = 0, start;
+		while ((start = descriptor.indexOf("Lnet/minecraft/", index)) != -1) {
+			int end = descriptor.indexOf(';', start);
+			int classIndex = Integer.parseInt(descriptor, descriptor.lastIndexOf("Class", end) + "Class".length(), end, 10);
+			sb.append(descriptor, index, start + 1).append(names[classIndex]);
+			index = end;
+		}
+
+		return sb.append(descriptor, index, descriptor.length()).toString();
+	}
+
+	private String javaName(String descriptor) {
+		return Type.getType(remap(descriptor, moj)).getClassName();
+	}
+
+	// Obfuscated names like the game's: a, b, ..., z, aa, ab, ...
+	private static String obfuscated(int index) {
+		StringBuilder sb = new StringBuilder();
+		for (index++; index > 0; index = (index - 1) / 26) sb.append((char) ('a' + (index - 1) % 26));
+		return sb.reverse().toString();
+	}
+
+	/**
+	 * Writes a realistic corpus, useful to try the CLI on.
+	 * @param args The directory to write to and optionally the seed
+	 * @throws IOException If the corpus could not be written
+	 */
+	public static void main(String[] args) throws IOException {
+		Path dir = Paths.get(args.length == 0 ? "corpus" : args[0]);
+		CorpusGenerator generator = realistic(args.length > 1 ? Long.parseLong(args[1]) : 0);
+		generator.writeYarn(dir);
+		generator.writeMoj(dir);
+		generator.writeMinecraftJar(dir.resolve("minecraft-named.jar"));
+		generator.writeModJar(dir.resolve("mod.jar"), 500, 10, 50);
+	}
+
+	/**
+	 * A generated method or field.
+	 * @param owner The index of the class declaring the member
+	 * @param official The obfuscated name of the member
+	 * @param named The Yarn name of the member
+	 * @param moj The Moj name of the member
+	 * @param descriptor The descriptor of the member in the named namespace
+	 */
+	public record Member(int owner, String official, String named, String moj, String descriptor) {}
+}